@@ -0,0 +1,331 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * runs many programs at once in one JVM, on a pool of threads, and reports how fast they went and which failed.
+ * every script is compiled once by the Engine and every run of it gets its own VirtualMachine and RAM.
+ * a script foo.txt with a foo.expected next to it fails unless it outputs exactly that
+ * (an error is output as the command line prints it), and one without fails only if it goes wrong
+ */
+public class BatchRunner
+{
+    /**what the file a script should output is named after the script*/
+    static final String EXPECTED = ".expected";
+
+    private final Engine engine;
+    private final int threads;
+    /**how many times each script is run*/
+    private final int repeat;
+    /**whether every run gets a virtual thread instead*/
+    private final boolean virtual;
+    /**how many milliseconds each run goes before the next gets a turn on a Scheduler, or 0 to run each to the end*/
+    private final long slice;
+
+    /**
+     * @param threads how many programs run at once
+     * @param repeat how many times each script is run
+     */
+    BatchRunner(Engine engine, int threads, int repeat){
+        this(engine, threads, repeat, false, 0);
+    }
+
+    /**
+     * @param virtual whether to run every program on a virtual thread instead, if the JVM has them
+     * @param slice how many milliseconds each run goes before the next gets a turn, so a few that never end
+     *              cannot hold the rest up, or 0 to run each to the end
+     */
+    BatchRunner(Engine engine, int threads, int repeat, boolean virtual, long slice){
+        this.engine = engine;
+        this.threads = threads;
+        this.repeat = repeat;
+        this.virtual = virtual;
+        this.slice = slice;
+    }
+
+    /**
+     * a script and what it should output, or null if it only has to not go wrong
+     */
+    static class Script {
+        final Path file, expected;
+
+        Script(Path file, Path expected){
+            this.file = file;
+            this.expected = expected;
+        }
+    }
+
+    /**
+     * one run of a script
+     */
+    private static class Result {
+        final Script script;
+        final long nanos;
+        /**why it failed, or null if it passed*/
+        final String failure;
+
+        Result(Script script, long nanos, String failure){
+            this.script = script;
+            this.nanos = nanos;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * @param path a directory, every .txt file of which is a script, or a manifest with a script on each line,
+     *             optionally followed by the file it should output. blank lines and lines starting with # are skipped,
+     *             paths are from the manifest's directory, and a path with spaces in it is put in double quotes
+     * @return the scripts, with the files of what they should output where there are any
+     * @throws IOException if a manifest cannot be read, or has a line that is not one or two paths
+     */
+    static List<Script> scripts(Path path) throws IOException {
+        List<Script> scripts = new ArrayList<>();
+
+        if (Files.isDirectory(path)){
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> directory = Files.newDirectoryStream(path, "*.txt")){
+                for (Path file: directory)
+                    files.add(file);
+            }
+            files.sort(null);
+
+            for (Path file: files){
+                String name = file.getFileName().toString();
+                Path expected = file.resolveSibling(name.substring(0, name.length() - 4) + EXPECTED);
+                scripts.add(new Script(file, Files.isRegularFile(expected) ? expected : null));
+            }
+            return scripts;
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+
+        List<String> lines = Files.readAllLines(path, Charset.defaultCharset());
+        for (int i = 0; i < lines.size(); i++){
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+
+            List<String> parts = fields(line);
+            if (parts == null || parts.size() > 2)
+                throw new IOException("line " + (i + 1) + " is not a script and what it should output");
+            scripts.add(new Script(directory.resolve(parts.get(0)), parts.size() > 1 ? directory.resolve(parts.get(1)) : null));
+        }
+
+        return scripts;
+    }
+
+    /**
+     * @return the paths on a line of a manifest, each either in double quotes or up to the next space,
+     *         or null if a quote is not closed
+     */
+    private static List<String> fields(String line){
+        List<String> fields = new ArrayList<>();
+        int i = 0;
+
+        while (i < line.length()){
+            if (Character.isWhitespace(line.charAt(i)))
+                i++;
+            else if (line.charAt(i) == '"'){
+                int end = line.indexOf('"', i + 1);
+                if (end == -1)
+                    return null;
+                fields.add(line.substring(i + 1, end));
+                i = end + 1;
+            }
+            else {
+                int start = i;
+                while (i < line.length() && !Character.isWhitespace(line.charAt(i)))
+                    i++;
+                fields.add(line.substring(start, i));
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * runs every script repeat times on the pool and prints each failure and then the report to report
+     * @return how many runs failed
+     */
+    int run(List<Script> scripts, PrintStream report) throws InterruptedException {
+        ScriptHost host = new ScriptHost(virtual, threads);
+        ExecutorService pool = host.executor();
+        Scheduler scheduler = slice > 0 ? new Scheduler(threads, slice) : null;
+
+        try {
+            long start = System.nanoTime();
+
+            // compiling is done once per script, on the pool as well
+            List<Future<Object>> compiled = new ArrayList<>();
+            for (Script script: scripts)
+                compiled.add(pool.submit(() -> compile(script)));
+
+            List<Future<Result>> runs = new ArrayList<>();
+            for (int i = 0; i < scripts.size(); i++){
+                Script script = scripts.get(i);
+                Object program = program(compiled.get(i));
+
+                for (int j = 0; j < repeat; j++){
+                    if (scheduler != null && program instanceof CompiledProgram)
+                        runs.add(schedule(scheduler, script, (CompiledProgram) program));
+                    else
+                        runs.add(pool.submit(() -> run(script, program)));
+                }
+            }
+
+            long[] nanos = new long[runs.size()];
+            int failures = 0;
+
+            // the runs of each script are one after another, so each failing script is reported once, after its last run
+            for (int i = 0, failed = 0; i < runs.size(); i++){
+                Result result = result(runs.get(i), scripts.get(i / repeat));
+                nanos[i] = result.nanos;
+
+                if (result.failure != null){
+                    failures++;
+                    if (failed++ == 0)
+                        report.print("FAIL " + result.script.file + ": " + result.failure);
+                }
+
+                if ((i + 1) % repeat == 0 && failed > 0){
+                    report.println(repeat > 1 ? " (" + failed + " of " + repeat + " runs)" : "");
+                    failed = 0;
+                }
+            }
+
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(nanos);
+
+            report.printf("%d runs of %d scripts on %s in %.3f s: %.1f programs/sec%n", nanos.length, scripts.size(),
+                    scheduler != null ? threads + " threads in " + slice + " ms slices"
+                            : host.isVirtual() ? "virtual threads" : threads + " threads",
+                    seconds, nanos.length / seconds);
+            report.printf("latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                    percentile(nanos, 50), percentile(nanos, 90), percentile(nanos, 99), percentile(nanos, 100));
+            report.printf("%d passed, %d failed%n", nanos.length - failures, failures);
+            return failures;
+        } finally {
+            pool.shutdownNow();
+            if (scheduler != null)
+                scheduler.close();
+        }
+    }
+
+    /**
+     * @return the CompiledProgram of script, or what to output instead if it cannot be compiled:
+     *         its error as the command line prints it
+     */
+    private Object compile(Script script){
+        try {
+            return engine.compile(script.file);
+        } catch (ProgramException e){
+            return "\n\n" + e.getMessage();
+        } catch (RuntimeException | Error e){
+            return "\n\n" + e;
+        }
+    }
+
+    /**
+     * runs program, timing it, and checks what it outputs
+     * @param program the CompiledProgram of script, or the error compiling it gave
+     */
+    private Result run(Script script, Object program){
+        long start = System.nanoTime();
+        StringBuilder out = new StringBuilder();
+        Throwable error = null;
+
+        if (program instanceof CompiledProgram){
+            try {
+                ((CompiledProgram) program).run(out::append);
+            } catch (RuntimeException | Error e){
+                // an Error such as a StackOverflowError is this run's failure, not the batch's
+                error = e;
+            }
+        }
+        else
+            out.append(program);
+
+        return result(script, out, error, program instanceof CompiledProgram ? null : out.toString().trim(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * queues a run of program on scheduler, timing it from now, since waiting for its turns is part of how long it takes
+     */
+    private Future<Result> schedule(Scheduler scheduler, Script script, CompiledProgram program){
+        long start = System.nanoTime();
+        StringBuilder out = new StringBuilder();
+
+        return scheduler.submit(program, out::append).completion()
+                .handle((ignored, e) -> result(script, out, e, null, System.nanoTime() - start));
+    }
+
+    /**
+     * checks what a run of script output
+     * @param error what stopped the run, or null if it finished
+     * @param failure why it failed before it ran, or null
+     */
+    private Result result(Script script, StringBuilder out, Throwable error, String failure, long nanos){
+        if (error != null){
+            failure = error instanceof ProgramException ? error.getMessage() : error.toString();
+            out.append("\n\n").append(failure);
+        }
+
+        String output = out.toString();
+
+        if (script.expected == null)
+            return new Result(script, nanos, failure);
+
+        try {
+            String expected = new String(Files.readAllBytes(script.expected), Charset.defaultCharset());
+            if (!expected.equals(output))
+                return new Result(script, nanos, "output differs from " + script.expected);
+        } catch (IOException e){
+            return new Result(script, nanos, "cannot read " + script.expected + ": " + e.getMessage());
+        }
+
+        return new Result(script, nanos, null);
+    }
+
+    /**
+     * @param sorted every latency, smallest first
+     * @return the latency (in milliseconds) that percent of them are no more than
+     */
+    static double percentile(long[] sorted, int percent){
+        if (sorted.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(rank - 1, 0)] / 1e6;
+    }
+
+    /**
+     * @return what compiling a script gave, or what it threw as the command line would print it
+     */
+    private static Object program(Future<Object> compiled) throws InterruptedException {
+        try {
+            return compiled.get();
+        } catch (ExecutionException e){
+            return "\n\n" + e.getCause();
+        }
+    }
+
+    /**
+     * @return what a run of script gave, or its failure if it threw something it did not catch
+     */
+    private static Result result(Future<Result> run, Script script) throws InterruptedException {
+        try {
+            return run.get();
+        } catch (ExecutionException e){
+            return new Result(script, 0, e.getCause().toString());
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * a program compiled for the VirtualMachine: one instruction stream, a constant pool and a table of commands
+ */
+public class Bytecode
+{
+    /**the instructions of every command, one after another*/
+    int[] code;
+    /**the line each instruction came from*/
+    int[] lines;
+    /**the doubles and words used by CONST_DOUBLE and CONST_WORD*/
+    Object[] constants;
+    /**every command, with the program set up (the universal variables, then calling start) last*/
+    Method[] methods;
+    /**the universal variables by index*/
+    String[] globalNames, globalTypes;
+
+    /**
+     * a command: where it starts, and what it needs for a frame
+     */
+    static class Method {
+        String name, returnType;
+        int entry, paramCount, maxStack;
+        /**the variables of the frame, parameters first*/
+        String[] slotNames, slotTypes;
+
+        @Override
+        public String toString(){
+            StringBuilder st = new StringBuilder("command " + name + "(");
+
+            for (int i = 0; i < paramCount; i++)
+                st.append(i == 0 ? "" : ", ").append(slotTypes[i]).append(" ").append(slotNames[i]);
+
+            return st.append(") gives ").append(returnType).toString();
+        }
+    }
+
+    /**
+     * @return the set up method, which runs first
+     */
+    Method entry(){
+        return methods[methods.length - 1];
+    }
+}
@@ -0,0 +1,371 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * keeps compiled programs on disk, one file per program named after the hash of its code, so a program
+ * that has not changed since it was last compiled is run straight from its Bytecode without being lexed, parsed
+ * or compiled again. a file that is from another version, damaged, or for other code is just compiled over:
+ * every file holds the SHA-256 digest of what is in it, and its instructions are checked before they are trusted.
+ * the files are only used from a directory that belongs to this user and nobody else can write to
+ */
+public class BytecodeCache
+{
+    /**the start of every cache file*/
+    private static final int MAGIC = 0x4A434243;
+    /**the classes whose code decides what the bytecode of a program is, or how it is written here*/
+    private static final Class<?>[] COMPILERS = {
+            Lexer.class, Parser.class, ConstantFolder.class, Resolver.class, BytecodeCompiler.class, BytecodeCache.class};
+    /**the version of the file format and of the bytecode in it, worked out from what makes them (see version)*/
+    static final int VERSION = version();
+
+    /**the tags of the constants*/
+    private static final int DOUBLE = 0, WORD = 1;
+
+    /**where the files are kept*/
+    private Path directory;
+    /**whether the directory is this user's alone, once it has been looked at*/
+    private volatile Boolean trusted;
+
+    BytecodeCache(Path directory){
+        this.directory = directory;
+    }
+
+    /**
+     * @return the start of the SHA-256 digest of the opcode table and the class files of the COMPILERS, so the
+     *         version changes by itself whenever an instruction or the way programs are compiled or stored does
+     */
+    private static int version(){
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.join(",", Opcode.NAMES).getBytes("UTF-8"));
+            digest.update(Arrays.toString(Opcode.OPERANDS).getBytes("UTF-8"));
+
+            for (Class<?> compiler: COMPILERS){
+                try (InputStream in = compiler.getResourceAsStream(compiler.getName() + ".class")){
+                    if (in != null)
+                        digest.update(in.readAllBytes());
+                }
+            }
+
+            byte[] hash = digest.digest();
+            return (hash[0] & 0xff) << 24 | (hash[1] & 0xff) << 16 | (hash[2] & 0xff) << 8 | hash[3] & 0xff;
+        } catch (IOException | NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param hash the hash of the code, from Source.hash
+     * @return the program compiled from the code, or null if it is not cached (or cannot be read or trusted)
+     */
+    Bytecode load(byte[] hash){
+        Path file = file(hash);
+        if (!Files.isRegularFile(file) || !trusted())
+            return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return null;
+
+            byte[] stored = new byte[in.readInt()];
+            in.readFully(stored);
+            if (!Arrays.equals(stored, hash))
+                return null;
+
+            byte[] digest = new byte[in.readInt()];
+            in.readFully(digest);
+            byte[] body = in.readAllBytes();
+            if (!MessageDigest.isEqual(digest, digest(body)))
+                return null;
+
+            Bytecode program = read(new DataInputStream(new ByteArrayInputStream(body)));
+            return check(program) ? program : null;
+        } catch (IOException | RuntimeException e){
+            return null;
+        }
+    }
+
+    /**
+     * writes program to the cache under hash. it is written to a temporary file and moved into place,
+     * so a program running at the same time never reads half of it
+     * @return whether it was written
+     */
+    boolean save(byte[] hash, Bytecode program){
+        Path temporary = null;
+
+        try {
+            if (!trusted())
+                return false;
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(body)){
+                write(out, program);
+            }
+            byte[] bytes = body.toByteArray(), digest = digest(bytes);
+
+            // a temporary file can only be read and written by its owner
+            temporary = Files.createTempFile(directory, "program", ".tmp");
+
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))){
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(hash.length);
+                out.write(hash);
+                out.writeInt(digest.length);
+                out.write(digest);
+                out.write(bytes);
+            }
+
+            Files.move(temporary, file(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | RuntimeException e){
+            try {
+                if (temporary != null)
+                    Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // it is only left behind in the cache
+            }
+            return false;
+        }
+    }
+
+    private static byte[] digest(byte[] bytes){
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * makes the directory, readable and writable by this user only, if it is not there
+     * @return whether it belongs to this user and nobody else can write to it, so nobody else can have put a
+     *         program in it. where the file system has no owners or permissions, it is taken on trust
+     */
+    private boolean trusted(){
+        Boolean trusted = this.trusted;
+        if (trusted != null)
+            return trusted;
+
+        try {
+            if (!directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+                Files.createDirectories(directory);
+            else {
+                if (!Files.isDirectory(directory))
+                    Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+
+                UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+                        .lookupPrincipalByName(System.getProperty("user.name"));
+                Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+
+                trusted = Files.getOwner(directory).equals(user) && !permissions.contains(PosixFilePermission.GROUP_WRITE)
+                        && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+            }
+
+            if (trusted == null)
+                trusted = true;
+        } catch (IOException | RuntimeException e){
+            trusted = false;
+        }
+
+        this.trusted = trusted;
+        return trusted;
+    }
+
+    private Path file(byte[] hash){
+        StringBuilder name = new StringBuilder();
+        for (byte b: hash)
+            name.append(String.format("%02x", b));
+        return directory.resolve(name.append(".jcbc").toString());
+    }
+
+    /**
+     * @return whether every instruction of program is whole and only jumps, calls and uses constants and universal
+     *         variables that are there, so the VirtualMachine can run it without going off the end of anything
+     */
+    private boolean check(Bytecode program){
+        int[] code = program.code;
+        if (program.lines.length != code.length || program.methods.length == 0)
+            return false;
+
+        // each command's code runs from its entry to the next command's, and its slots are all it may use
+        int[] slots = new int[code.length];
+        Arrays.fill(slots, -1);
+
+        for (Bytecode.Method method: program.methods){
+            if (method.entry < 0 || method.entry >= code.length || method.slotNames.length != method.slotTypes.length
+                    || method.paramCount > method.slotNames.length)
+                return false;
+            slots[method.entry] = method.slotNames.length;
+        }
+
+        for (int pc = 0, frame = -1; pc < code.length; pc++){
+            if (slots[pc] != -1)
+                frame = slots[pc];
+
+            int op = code[pc];
+            if (op < 0 || op >= Opcode.NAMES.length || pc + Opcode.OPERANDS[op] >= code.length)
+                return false;
+            if (Opcode.OPERANDS[op] == 0)
+                continue;
+
+            int operand = code[++pc];
+
+            if (op == Opcode.CONST_DOUBLE || op == Opcode.CONST_WORD || op == Opcode.FAIL){
+                if (operand < 0 || operand >= program.constants.length
+                        || !(program.constants[operand] instanceof Double) == (op == Opcode.CONST_DOUBLE))
+                    return false;
+            }
+            else if (op == Opcode.CALL || op == Opcode.TAIL_CALL){
+                if (operand < 0 || operand >= program.methods.length)
+                    return false;
+            }
+            else if (op >= Opcode.GLOAD_INT && op <= Opcode.GSTORE_WORD){
+                if (operand < 0 || operand >= program.globalNames.length)
+                    return false;
+            }
+            else if (op >= Opcode.JUMP && op <= Opcode.JUMP_IF_TRUE || op >= Opcode.IF_IEQ && op <= Opcode.IF_DGE){
+                if (operand < 0 || operand >= code.length)
+                    return false;
+            }
+            else if (op >= Opcode.LOAD_INT && op <= Opcode.STORE_WORD && (operand < 0 || operand >= frame))
+                return false;
+        }
+
+        return true;
+    }
+
+    /*
+     * the format: the instructions and their lines, the constant pool, the universal variables and then every command
+     */
+
+    private void write(DataOutputStream out, Bytecode program) throws IOException {
+        writeInts(out, program.code);
+        writeInts(out, program.lines);
+
+        out.writeInt(program.constants.length);
+        for (Object constant: program.constants){
+            if (constant instanceof Double){
+                out.writeByte(DOUBLE);
+                out.writeDouble((double) constant);
+            }
+            else {
+                out.writeByte(WORD);
+                writeString(out, (String) constant);
+            }
+        }
+
+        out.writeInt(program.globalNames.length);
+        for (int i = 0; i < program.globalNames.length; i++){
+            writeString(out, program.globalNames[i]);
+            writeString(out, program.globalTypes[i]);
+        }
+
+        out.writeInt(program.methods.length);
+        for (Bytecode.Method method: program.methods){
+            writeString(out, method.name);
+            writeString(out, method.returnType);
+            out.writeInt(method.entry);
+            out.writeInt(method.paramCount);
+            out.writeInt(method.maxStack);
+
+            out.writeInt(method.slotNames.length);
+            for (int i = 0; i < method.slotNames.length; i++){
+                writeString(out, method.slotNames[i]);
+                writeString(out, method.slotTypes[i]);
+            }
+        }
+    }
+
+    private Bytecode read(DataInputStream in) throws IOException {
+        Bytecode program = new Bytecode();
+        program.code = readInts(in);
+        program.lines = readInts(in);
+
+        program.constants = new Object[in.readInt()];
+        for (int i = 0; i < program.constants.length; i++){
+            int tag = in.readByte();
+
+            if (tag == DOUBLE)
+                program.constants[i] = in.readDouble();
+            else if (tag == WORD)
+                program.constants[i] = readString(in);
+            else
+                throw new IOException("unknown constant");
+        }
+
+        int globalCount = in.readInt();
+        program.globalNames = new String[globalCount];
+        program.globalTypes = new String[globalCount];
+        for (int i = 0; i < globalCount; i++){
+            program.globalNames[i] = readString(in);
+            program.globalTypes[i] = readString(in);
+        }
+
+        program.methods = new Bytecode.Method[in.readInt()];
+        for (int i = 0; i < program.methods.length; i++){
+            Bytecode.Method method = new Bytecode.Method();
+            method.name = readString(in);
+            method.returnType = readString(in);
+            method.entry = in.readInt();
+            method.paramCount = in.readInt();
+            method.maxStack = in.readInt();
+
+            int slotCount = in.readInt();
+            method.slotNames = new String[slotCount];
+            method.slotTypes = new String[slotCount];
+            for (int j = 0; j < slotCount; j++){
+                method.slotNames[j] = readString(in);
+                method.slotTypes[j] = readString(in);
+            }
+
+            program.methods[i] = method;
+        }
+
+        return program;
+    }
+
+    private void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value: values)
+            out.writeInt(value);
+    }
+
+    private int[] readInts(DataInputStream in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++)
+            values[i] = in.readInt();
+        return values;
+    }
+
+    /**
+     * words can be longer than writeUTF allows, so every string is its length and then its chars
+     */
+    private void writeString(DataOutputStream out, String string) throws IOException {
+        out.writeInt(string.length());
+        out.writeChars(string);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        char[] chars = new char[in.readInt()];
+        for (int i = 0; i < chars.length; i++)
+            chars[i] = in.readChar();
+        return new String(chars);
+    }
+}
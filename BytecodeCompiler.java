@@ -0,0 +1,552 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * compiles the tree made by the Parser into Bytecode. every jump (if, else, loops, break, give)
+ * is worked out here so the VirtualMachine never has to search for a matching bracket
+ */
+public class BytecodeCompiler
+{
+    /**the relation that is true exactly when each one (in the order of the comparison opcodes) is false*/
+    private static final int[] NEGATED = {1, 0, 5, 4, 3, 2};
+
+    private int[] code = new int[256], lines = new int[256];
+    private int size = 0, line = 0;
+
+    private ArrayList<Object> constants = new ArrayList<>();
+    private HashMap<Object, Integer> constantIndex = new HashMap<>();
+
+    private HashMap<String, Integer> methodIndex = new HashMap<>();
+    private Node.Command currentCommand;
+    /**the jumps of each break, for every loop being compiled*/
+    private LinkedList<ArrayList<Integer>> breaks = new LinkedList<>();
+    /**the height of the stack, and the highest it has been in this command*/
+    private int depth = 0, maxDepth = 0;
+
+    Bytecode compile(Node.Program program){
+        Bytecode bytecode = new Bytecode();
+        bytecode.methods = new Bytecode.Method[program.commands.size() + 1];
+        bytecode.globalNames = new String[program.globals.size()];
+        bytecode.globalTypes = new String[program.globals.size()];
+
+        for (Node.Declare declare: program.globals){
+            bytecode.globalNames[declare.symbol.slot] = declare.symbol.name;
+            bytecode.globalTypes[declare.symbol.slot] = declare.symbol.type;
+        }
+
+        for (Node.Command command: program.commands.values())
+            methodIndex.put(command.name, methodIndex.size());
+
+        int index = 0;
+        for (Node.Command command: program.commands.values())
+            bytecode.methods[index++] = command(command);
+
+        Node.Command setUp = new Node.Command("program", program.line);
+        setUp.body = new Node.Block(program.line);
+        setUp.body.statements.addAll(program.globals);
+        setUp.body.statements.add(new Node.CallStatement(new Node.Call(program.commands.get("start"), program.line), program.line));
+        new Resolver().resolve(setUp);
+        bytecode.methods[index] = command(setUp);
+
+        bytecode.code = Arrays.copyOf(code, size);
+        bytecode.lines = Arrays.copyOf(lines, size);
+        bytecode.constants = constants.toArray();
+        return bytecode;
+    }
+
+    /*
+     * emitting
+     */
+
+    private void emit(int op){
+        if (size == code.length){
+            code = Arrays.copyOf(code, size * 2);
+            lines = Arrays.copyOf(lines, size * 2);
+        }
+
+        lines[size] = line;
+        code[size++] = op;
+    }
+
+    private void emit(int op, int operand){
+        emit(op);
+        emit(operand);
+        adjust(Opcode.STACK_EFFECT[op]);
+    }
+
+    private void instruction(int op){
+        emit(op);
+        adjust(Opcode.STACK_EFFECT[op]);
+    }
+
+    private void adjust(int effect){
+        depth += effect;
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * emits a jump whose target is not known yet
+     * @return where the target goes, for patch
+     */
+    private int jump(int op){
+        emit(op, -1);
+        return size - 1;
+    }
+
+    /**
+     * points the jump at operand to the next instruction
+     */
+    private void patch(int operand){
+        code[operand] = size;
+    }
+
+    private void patch(ArrayList<Integer> operands, int target){
+        for (int operand: operands)
+            code[operand] = target;
+    }
+
+    private int constant(Object value){
+        Integer index = constantIndex.get(value);
+
+        if (index == null){
+            index = constants.size();
+            constants.add(value);
+            constantIndex.put(value, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * @return 0-4 for integer, double, char, boolean and word, the order of the typed opcodes
+     */
+    private int typeIndex(String type){
+        switch (type){
+            case "integer":
+                return 0;
+            case "double":
+                return 1;
+            case "char":
+                return 2;
+            case "boolean":
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    /*
+     * commands and statements
+     */
+
+    private Bytecode.Method command(Node.Command command){
+        Bytecode.Method method = new Bytecode.Method();
+        method.name = command.name;
+        method.returnType = command.returnType;
+        method.paramCount = command.params.size();
+        method.entry = size;
+
+        method.slotNames = new String[command.frame.size()];
+        method.slotTypes = new String[command.frame.size()];
+
+        for (int i = 0; i < command.frame.size(); i++){
+            method.slotNames[i] = command.frame.get(i).name;
+            method.slotTypes[i] = command.frame.get(i).type;
+        }
+
+        currentCommand = command;
+        depth = maxDepth = 0;
+        line = command.line;
+        instruction(Opcode.SAFEPOINT);
+
+        statement(command.body, command.returnType.equals("nothing"));
+
+        line = command.line;
+        instruction(command.returnType.equals("nothing") ? Opcode.RETURN : Opcode.NO_RETURN);
+
+        method.maxStack = maxDepth;
+        return method;
+    }
+
+    private void statement(Node.Statement statement){
+        statement(statement, false);
+    }
+
+    /**
+     * @param tail whether nothing is left to do in the command after statement, so a call to a command
+     *             giving nothing can replace it with TAIL_CALL
+     */
+    private void statement(Node.Statement statement, boolean tail){
+        line = statement.line;
+
+        if (statement instanceof Node.Block){
+            ArrayList<Node.Statement> statements = ((Node.Block) statement).statements;
+
+            for (int i = 0; i < statements.size(); i++)
+                statement(statements.get(i), tail && i == statements.size() - 1);
+        }
+        else if (statement instanceof Node.Declare){
+            Node.Declare declare = (Node.Declare) statement;
+            expression(declare.value, declare.symbol.type);
+            store(declare.symbol);
+        }
+        else if (statement instanceof Node.Assign){
+            Node.Assign assign = (Node.Assign) statement;
+            expression(assign.value, assign.target.type);
+            store(assign.target.symbol);
+        }
+        else if (statement instanceof Node.Output){
+            Node.Output output = (Node.Output) statement;
+            expression(output.value);
+            instruction(Opcode.OUTPUT_INT + typeIndex(output.value.type));
+            if (output.newLine)
+                instruction(Opcode.NEWLINE);
+        }
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+            ArrayList<Integer> otherwise = new ArrayList<>();
+            branch(ifStatement.condition, false, otherwise);
+            statement(ifStatement.then, tail);
+
+            if (ifStatement.otherwise == null)
+                patch(otherwise, size);
+            else {
+                int end = jump(Opcode.JUMP);
+                patch(otherwise, size);
+                statement(ifStatement.otherwise, tail);
+                patch(end);
+            }
+        }
+        else if (statement instanceof Node.While){
+            // the condition goes after the body, so each time round is one jump back rather than a jump out and one back
+            Node.While loop = (Node.While) statement;
+            int test = jump(Opcode.JUMP);
+            int start = size;
+
+            loopBody(loop.body);
+            patch(test);
+            line = loop.line;
+            loopCondition(loop.condition, start);
+        }
+        else if (statement instanceof Node.DoWhile){
+            Node.DoWhile loop = (Node.DoWhile) statement;
+            int start = size;
+
+            loopBody(loop.body);
+            line = loop.line;
+            loopCondition(loop.condition, start);
+        }
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            statement(loop.init);
+            int test = jump(Opcode.JUMP);
+            int start = size;
+
+            loopBody(loop.body);
+            statement(loop.update);
+            patch(test);
+            line = loop.line;
+            loopCondition(loop.condition, start);
+        }
+        else if (statement instanceof Node.Break)
+            breaks.peek().add(jump(Opcode.JUMP));
+        else if (statement instanceof Node.Give){
+            Node.Give give = (Node.Give) statement;
+
+            if (give.value == null)
+                instruction(Opcode.RETURN);
+            else if (give.value instanceof Node.Call && give.value.type.equals(currentCommand.returnType))
+                call((Node.Call) give.value, Opcode.TAIL_CALL);
+            else {
+                expression(give.value, currentCommand.returnType);
+                instruction(Opcode.RETURN_VALUE);
+            }
+        }
+        else if (statement instanceof Node.Fail)
+            emit(Opcode.FAIL, constant(((Node.Fail) statement).message));
+        else if (statement instanceof Node.CallStatement){
+            Node.Call call = ((Node.CallStatement) statement).call;
+
+            if (tail && call.type.equals("nothing"))
+                call(call, Opcode.TAIL_CALL);
+            else {
+                call(call, Opcode.CALL);
+                if (!call.type.equals("nothing"))
+                    instruction(Opcode.POP);
+            }
+        }
+    }
+
+    private void loopBody(Node.Block body){
+        breaks.push(new ArrayList<>());
+        statement(body);
+    }
+
+    /**
+     * jumps back to start while condition holds, then points the breaks of the loop past it.
+     * every time round passes the safepoint before the condition
+     */
+    private void loopCondition(Node.Expression condition, int start){
+        ArrayList<Integer> again = new ArrayList<>();
+        instruction(Opcode.SAFEPOINT);
+        branch(condition, true, again);
+        patch(again, start);
+        patchBreaks();
+    }
+
+    private void patchBreaks(){
+        patch(breaks.pop(), size);
+    }
+
+    private void store(Node.Symbol symbol){
+        emit((symbol.global ? Opcode.GSTORE_INT : Opcode.STORE_INT) + typeIndex(symbol.type), symbol.slot);
+    }
+
+    /*
+     * expressions
+     */
+
+    /**
+     * compiles expression, converting it to type
+     */
+    private void expression(Node.Expression expression, String type){
+        expression(expression);
+        convert(expression.type, type);
+    }
+
+    private void convert(String from, String to){
+        if (from.equals("integer") && to.equals("double"))
+            instruction(Opcode.I2D);
+        else if (from.equals("double") && to.equals("integer"))
+            instruction(Opcode.D2I);
+    }
+
+    private void expression(Node.Expression expression){
+        int savedLine = line;
+        line = expression.line;
+
+        if (expression instanceof Node.Literal){
+            Object value = ((Node.Literal) expression).value;
+
+            switch (expression.type){
+                case "integer":
+                    emit(Opcode.CONST_INT, (int) value);
+                    break;
+                case "double":
+                    emit(Opcode.CONST_DOUBLE, constant(value));
+                    break;
+                case "char":
+                    emit(Opcode.CONST_INT, (char) value);
+                    break;
+                case "boolean":
+                    emit(Opcode.CONST_INT, (boolean) value ? 1 : 0);
+                    break;
+                default:
+                    emit(Opcode.CONST_WORD, constant(value));
+            }
+        }
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+
+            emit((symbol.global ? Opcode.GLOAD_INT : Opcode.LOAD_INT) + typeIndex(symbol.type), symbol.slot);
+        }
+        else if (expression instanceof Node.Unary){
+            Node.Unary unary = (Node.Unary) expression;
+            expression(unary.operand);
+
+            if (unary.operator.equals("!"))
+                instruction(Opcode.NOT);
+            else
+                instruction(unary.type.equals("integer") ? Opcode.INEG : Opcode.DNEG);
+        }
+        else if (expression instanceof Node.Binary)
+            binary((Node.Binary) expression);
+        else
+            call((Node.Call) expression, Opcode.CALL);
+
+        line = savedLine;
+    }
+
+    /**
+     * @param op CALL, or TAIL_CALL if the call is the last thing the command does
+     */
+    private void call(Node.Call call, int op){
+        int savedLine = line;
+
+        for (int i = 0; i < call.arguments.size(); i++)
+            expression(call.arguments.get(i), call.command.params.get(i).type);
+
+        line = call.line;
+        emit(op, methodIndex.get(call.command.name));
+        adjust(-call.arguments.size() + (op == Opcode.CALL && !call.type.equals("nothing") ? 1 : 0));
+        line = savedLine;
+    }
+
+    private void binary(Node.Binary binary){
+        String operator = binary.operator;
+        String left = binary.left.type, right = binary.right.type;
+
+        if (operator.equals("&") || operator.equals("|")){
+            ArrayList<Integer> otherwise = new ArrayList<>();
+            branch(binary, false, otherwise);
+            emit(Opcode.CONST_INT, 1);
+            int end = jump(Opcode.JUMP);
+
+            // only one of the two constants is ever on the stack
+            adjust(-1);
+            patch(otherwise, size);
+            emit(Opcode.CONST_INT, 0);
+            patch(end);
+            return;
+        }
+
+        boolean numeric = left.equals("integer") || left.equals("double");
+        boolean integers = left.equals("integer") && right.equals("integer");
+        String operandType = integers || !numeric ? left : "double";
+
+        expression(binary.left, operandType);
+        expression(binary.right, operandType);
+        line = binary.line;
+
+        if (!numeric){
+            boolean words = left.equals("word");
+
+            if (operator.equals("="))
+                instruction(words ? Opcode.WEQ : Opcode.IEQ);
+            else
+                instruction(words ? Opcode.WNE : Opcode.INE);
+            return;
+        }
+
+        int base = integers ? 0 : Opcode.DADD - Opcode.IADD;
+        int compareBase = integers ? 0 : Opcode.DEQ - Opcode.IEQ;
+
+        switch (operator){
+            case "+":
+                instruction(Opcode.IADD + base);
+                break;
+            case "-":
+                instruction(Opcode.ISUB + base);
+                break;
+            case "*":
+                instruction(Opcode.IMUL + base);
+                break;
+            case "/":
+                instruction(Opcode.IDIV + base);
+                break;
+            case "%":
+                instruction(Opcode.IREM + base);
+                break;
+            case "=":
+                instruction(Opcode.IEQ + compareBase);
+                break;
+            case "!=":
+                instruction(Opcode.INE + compareBase);
+                break;
+            case "<":
+                instruction(Opcode.ILT + compareBase);
+                break;
+            case ">":
+                instruction(Opcode.IGT + compareBase);
+                break;
+            case "=<":
+                instruction(Opcode.ILE + compareBase);
+                break;
+            default:
+                instruction(Opcode.IGE + compareBase);
+        }
+    }
+
+    /*
+     * conditions
+     */
+
+    /**
+     * compiles condition as jumps, rather than as a boolean to test. & and | skip their right side once
+     * the left decides, and a comparison of integers, chars or booleans jumps straight on its result
+     * @param when whether to jump when condition is true or when it is false
+     * @param jumps where the operand of every jump made goes, to be patched to the target
+     */
+    private void branch(Node.Expression condition, boolean when, ArrayList<Integer> jumps){
+        int savedLine = line;
+        line = condition.line;
+
+        if (condition instanceof Node.Literal){
+            if ((boolean) ((Node.Literal) condition).value == when)
+                jumps.add(jump(Opcode.JUMP));
+        }
+        else if (condition instanceof Node.Unary)
+            branch(((Node.Unary) condition).operand, !when, jumps);
+        else if (condition instanceof Node.Binary && isLogic(((Node.Binary) condition).operator)){
+            Node.Binary binary = (Node.Binary) condition;
+
+            // a false left side decides &, and a true one decides |
+            if (binary.operator.equals("&") != when){
+                branch(binary.left, when, jumps);
+                branch(binary.right, when, jumps);
+            }
+            else {
+                ArrayList<Integer> decided = new ArrayList<>();
+                branch(binary.left, !when, decided);
+                branch(binary.right, when, jumps);
+                patch(decided, size);
+            }
+        }
+        else if (!(condition instanceof Node.Binary && compare((Node.Binary) condition, when, jumps))){
+            expression(condition);
+            jumps.add(jump(when ? Opcode.JUMP_IF_TRUE : Opcode.JUMP_IF_FALSE));
+        }
+
+        line = savedLine;
+    }
+
+    private boolean isLogic(String operator){
+        return operator.equals("&") || operator.equals("|");
+    }
+
+    /**
+     * compiles a comparison as one compare and jump, if there is one for it
+     * @return whether it could be. words, and doubles jumped on when false (where NaN makes every comparison false), cannot
+     */
+    private boolean compare(Node.Binary binary, boolean when, ArrayList<Integer> jumps){
+        String left = binary.left.type, right = binary.right.type;
+        boolean integers = left.equals("integer") && right.equals("integer") || left.equals("char") || left.equals("boolean");
+        boolean doubles = !integers && !left.equals("word") && when;
+
+        if (!integers && !doubles)
+            return false;
+
+        int compare = relation(binary.operator);
+        if (!when)
+            compare = NEGATED[compare];
+
+        String operandType = integers ? left : "double";
+        expression(binary.left, operandType);
+        expression(binary.right, operandType);
+        line = binary.line;
+        jumps.add(jump((integers ? Opcode.IF_IEQ : Opcode.IF_DEQ) + compare));
+        return true;
+    }
+
+    /**
+     * @return where operator is in the order of the comparison opcodes: = != < > =< =>
+     */
+    private int relation(String operator){
+        switch (operator){
+            case "=":
+                return 0;
+            case "!=":
+                return 1;
+            case "<":
+                return 2;
+            case ">":
+                return 3;
+            case "=<":
+                return 4;
+            default:
+                return 5;
+        }
+    }
+}
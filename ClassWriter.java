@@ -0,0 +1,415 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * writes a JVM class file: the constant pool, static fields and methods with their code.
+ * the class is version 49, so the JVM checks it by inference and no stack map frames are needed
+ */
+public class ClassWriter
+{
+    /**the JVM instructions used by the JvmCompiler*/
+    static final int ICONST_0 = 3, DCONST_0 = 14, DCONST_1 = 15, BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19, LDC2_W = 20;
+    static final int ILOAD = 21, DLOAD = 24, ALOAD = 25, IALOAD = 46, ISTORE = 54, DSTORE = 57, ASTORE = 58;
+    static final int POP = 87, POP2 = 88, DUP = 89, DUP2 = 92, DUP2_X1 = 93, SWAP = 95;
+    static final int IADD = 96, DADD = 99, ISUB = 100, DSUB = 103, IMUL = 104, DMUL = 107, IDIV = 108, DDIV = 111;
+    static final int IREM = 112, DREM = 115, INEG = 116, DNEG = 119, IAND = 126, IOR = 128, IXOR = 130, I2D = 135;
+    static final int DCMPL = 151, DCMPG = 152;
+    static final int IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158;
+    static final int IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163, IF_ICMPLE = 164;
+    static final int GOTO = 167, IRETURN = 172, DRETURN = 175, ARETURN = 176, RETURN = 177;
+    static final int GETSTATIC = 178, PUTSTATIC = 179, GETFIELD = 180, PUTFIELD = 181, INVOKEVIRTUAL = 182, INVOKESTATIC = 184;
+    static final int CHECKCAST = 192, WIDE = 196;
+
+    static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_STATIC = 0x0008, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private DataOutputStream pool = new DataOutputStream(poolBytes);
+    private HashMap<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    private ArrayList<byte[]> fields = new ArrayList<>(), methods = new ArrayList<>();
+    private int thisClass, superClass;
+
+    ClassWriter(String name, String superName){
+        thisClass = classRef(name);
+        superClass = classRef(superName);
+    }
+
+    /**
+     * @return the finished class file
+     */
+    byte[] toByteArray(){
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(poolCount);
+            poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+
+            out.writeShort(fields.size());
+            for (byte[] field: fields)
+                out.write(field);
+
+            out.writeShort(methods.size());
+            for (byte[] method: methods)
+                out.write(method);
+
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e){
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * the constant pool
+     */
+
+    private int constant(String key, int tag, Object value, int slots){
+        Integer index = poolIndex.get(key);
+        if (index != null)
+            return index;
+
+        try {
+            pool.writeByte(tag);
+            switch (tag){
+                case 1:
+                    pool.writeUTF((String) value);
+                    break;
+                case 3:
+                    pool.writeInt((int) value);
+                    break;
+                case 6:
+                    pool.writeDouble((double) value);
+                    break;
+                case 7:
+                case 8:
+                    pool.writeShort((int) value);
+                    break;
+                default:
+                    int[] pair = (int[]) value;
+                    pool.writeShort(pair[0]);
+                    pool.writeShort(pair[1]);
+            }
+        } catch (IOException e){
+            throw new IllegalStateException(e);
+        }
+
+        index = poolCount;
+        poolCount += slots;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    int utf8(String value){
+        return constant("U" + value, 1, value, 1);
+    }
+
+    int classRef(String name){
+        return constant("C" + name, 7, utf8(name), 1);
+    }
+
+    int string(String value){
+        return constant("S" + value, 8, utf8(value), 1);
+    }
+
+    int integer(int value){
+        return constant("I" + value, 3, value, 1);
+    }
+
+    int doubleConstant(double value){
+        return constant("D" + Double.doubleToRawLongBits(value), 6, value, 2);
+    }
+
+    private int nameAndType(String name, String descriptor){
+        return constant("N" + name + ":" + descriptor, 12, new int[]{utf8(name), utf8(descriptor)}, 1);
+    }
+
+    int field(String owner, String name, String descriptor){
+        return constant("F" + owner + "." + name + ":" + descriptor, 9, new int[]{classRef(owner), nameAndType(name, descriptor)}, 1);
+    }
+
+    int method(String owner, String name, String descriptor){
+        return constant("M" + owner + "." + name + descriptor, 10, new int[]{classRef(owner), nameAndType(name, descriptor)}, 1);
+    }
+
+    /*
+     * fields and methods
+     */
+
+    void addField(int access, String name, String descriptor){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        } catch (IOException e){
+            throw new IllegalStateException(e);
+        }
+
+        fields.add(bytes.toByteArray());
+    }
+
+    /**
+     * starts a method. its code is added to the class by Code.end()
+     * @param locals how many local variable slots the parameters take
+     */
+    Code addMethod(int access, String name, String descriptor, int locals){
+        return new Code(access, name, descriptor, locals);
+    }
+
+    /**
+     * a place in the code that can be jumped to before or after it is marked
+     */
+    static class Label {
+        private int position = -1, stack = -1;
+        private ArrayList<Integer> jumps = new ArrayList<>();
+    }
+
+    /**
+     * the instructions of one method, keeping track of how high the stack gets
+     */
+    class Code {
+        private int access, name, descriptor;
+        private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private ArrayList<Label> labels = new ArrayList<>();
+        private int stack = 0, maxStack = 0, maxLocals;
+
+        private Code(int access, String name, String descriptor, int locals){
+            this.access = access;
+            this.name = utf8(name);
+            this.descriptor = utf8(descriptor);
+            this.maxLocals = locals;
+        }
+
+        /**
+         * @return the number of bytes of code so far
+         */
+        int size(){
+            return bytes.size();
+        }
+
+        private void adjust(int effect){
+            stack += effect;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void u1(int value){
+            bytes.write(value);
+        }
+
+        private void u2(int value){
+            bytes.write(value >> 8);
+            bytes.write(value);
+        }
+
+        /**
+         * an instruction with no operands
+         * @param effect how the instruction changes the height of the stack
+         */
+        void op(int opcode, int effect){
+            u1(opcode);
+            adjust(effect);
+        }
+
+        void pushInt(int value){
+            if (value >= -1 && value <= 5)
+                op(ICONST_0 + value, 1);
+            else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE){
+                op(BIPUSH, 1);
+                u1(value);
+            }
+            else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE){
+                op(SIPUSH, 1);
+                u2(value);
+            }
+            else
+                ldc(integer(value));
+        }
+
+        void pushDouble(double value){
+            if (value == 0 && Double.doubleToRawLongBits(value) == 0)
+                op(DCONST_0, 2);
+            else if (value == 1)
+                op(DCONST_1, 2);
+            else {
+                op(LDC2_W, 2);
+                u2(doubleConstant(value));
+            }
+        }
+
+        void pushString(String value){
+            ldc(string(value));
+        }
+
+        private void ldc(int index){
+            if (index < 256){
+                op(LDC, 1);
+                u1(index);
+            }
+            else {
+                op(LDC_W, 1);
+                u2(index);
+            }
+        }
+
+        /**
+         * a load or store of local
+         * @param size 1 for ints and references, 2 for doubles
+         */
+        void local(int opcode, int local, int size){
+            boolean load = opcode < ISTORE;
+
+            if (local > 255){
+                u1(WIDE);
+                op(opcode, load ? size : -size);
+                u2(local);
+            }
+            else {
+                op(opcode, load ? size : -size);
+                u1(local);
+            }
+
+            maxLocals = Math.max(maxLocals, local + size);
+        }
+
+        /**
+         * getstatic/putstatic, or getfield/putfield of the object under the value
+         * @param size the slots the field takes
+         */
+        void field(int opcode, String owner, String name, String descriptor, int size){
+            int effect = opcode == GETSTATIC || opcode == GETFIELD ? size : -size;
+            op(opcode, opcode == GETFIELD || opcode == PUTFIELD ? effect - 1 : effect);
+            u2(ClassWriter.this.field(owner, name, descriptor));
+        }
+
+        /**
+         * an instruction taking a class, such as checkcast
+         */
+        void type(int opcode, String name){
+            op(opcode, 0);
+            u2(classRef(name));
+        }
+
+        void invoke(int opcode, String owner, String name, String descriptor){
+            op(opcode, stackEffect(descriptor) - (opcode == INVOKESTATIC ? 0 : 1));
+            u2(method(owner, name, descriptor));
+        }
+
+        void jump(int opcode, Label label){
+            int at = size();
+            op(opcode, opcode == GOTO ? 0 : opcode >= IF_ICMPEQ ? -2 : -1);
+            label.stack = stack;
+            label.jumps.add(at);
+            u2(0);
+
+            if (opcode == GOTO)
+                stack = 0;
+        }
+
+        /**
+         * marks label as being the next instruction
+         */
+        void mark(Label label){
+            label.position = size();
+            if (label.stack >= 0)
+                stack = label.stack;
+        }
+
+        /**
+         * a return or anything else that does not fall through to the next instruction
+         */
+        void exit(int opcode, int effect){
+            op(opcode, effect);
+            stack = 0;
+        }
+
+        /**
+         * finishes the method, patching every jump, and adds it to the class
+         */
+        void end(){
+            byte[] code = bytes.toByteArray();
+
+            for (Label label: labels){
+                for (int at: label.jumps){
+                    int offset = label.position - at;
+                    if (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE)
+                        throw new IllegalStateException("method too large");
+                    code[at + 1] = (byte) (offset >> 8);
+                    code[at + 2] = (byte) offset;
+                }
+            }
+
+            ByteArrayOutputStream method = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(method);
+
+            try {
+                out.writeShort(access);
+                out.writeShort(name);
+                out.writeShort(descriptor);
+                out.writeShort(1);
+                out.writeShort(utf8("Code"));
+                out.writeInt(12 + code.length);
+                out.writeShort(maxStack);
+                out.writeShort(maxLocals);
+                out.writeInt(code.length);
+                out.write(code);
+                out.writeShort(0);
+                out.writeShort(0);
+            } catch (IOException e){
+                throw new IllegalStateException(e);
+            }
+
+            methods.add(method.toByteArray());
+        }
+
+        Label newLabel(){
+            Label label = new Label();
+            labels.add(label);
+            return label;
+        }
+    }
+
+    /**
+     * @return how calling a method with descriptor changes the height of the stack (without the receiver)
+     */
+    static int stackEffect(String descriptor){
+        int effect = 0;
+        int i = 1;
+
+        while (descriptor.charAt(i) != ')'){
+            char c = descriptor.charAt(i);
+
+            if (c == 'D' || c == 'J')
+                effect -= 2;
+            else
+                effect--;
+
+            if (c == 'L')
+                i = descriptor.indexOf(';', i);
+            else if (c == '['){
+                while (descriptor.charAt(i) == '[')
+                    i++;
+                if (descriptor.charAt(i) == 'L')
+                    i = descriptor.indexOf(';', i);
+            }
+            i++;
+        }
+
+        char returned = descriptor.charAt(i + 1);
+        return effect + (returned == 'V' ? 0 : returned == 'D' || returned == 'J' ? 2 : 1);
+    }
+}
@@ -0,0 +1,919 @@
+import java.lang.invoke.MethodHandle;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * the closure tier: compiles the tree made by the Parser into a tree of small Java objects, one per statement
+ * and expression, each made for the types it works on (and for a literal on its right) when it is built.
+ * running it never looks at a Node, an operator or a type name again: every choice the Interpreter makes
+ * on each evaluation is made once here. variables are kept in the RAM, as the Interpreter keeps them.
+ * given Tiers, the commands that get hot are compiled on to the JVM while the program runs
+ */
+public class ClosureCompiler
+{
+    /**what running a statement did to the flow of the program*/
+    static final int NORMAL = 0, BREAK = 1, GIVE = 2;
+    /**the line separator, and how much output is collected before it is handed to the sink*/
+    private static final String NEWLINE = System.lineSeparator();
+    private static final int CHUNK = 8192;
+
+    /*
+     * what the tree is made of: an expression of each type (chars are IntExprs) and statements
+     */
+
+    interface IntExpr {
+        int eval(Frame frame);
+    }
+
+    interface DoubleExpr {
+        double eval(Frame frame);
+    }
+
+    interface BoolExpr {
+        boolean eval(Frame frame);
+    }
+
+    interface WordExpr {
+        String eval(Frame frame);
+    }
+
+    interface Stmt {
+        /**
+         * @return NORMAL, or BREAK/GIVE if the statement ended a loop or command early
+         */
+        int exec(Frame frame);
+    }
+
+    /**
+     * works out an argument in the caller's frame and writes it into a parameter of the callee at handle
+     */
+    interface Bind {
+        void bind(Frame caller, int handle);
+    }
+
+    /**
+     * a command, whose body is filled in once every command exists, so calls can be made before it is
+     */
+    static final class Callee {
+        final Node.Command command;
+        final String[] slotTypes;
+        final boolean givesNothing;
+        Stmt body;
+        /**the Tiers it is counted by, or null*/
+        final Tiers tiers;
+        /**for the Tiers: how many times it has been called and gone round its loops, whether that made it hot,
+         * and the bridge into what it was compiled to*/
+        int calls, backEdges;
+        boolean hot;
+        volatile MethodHandle compiled;
+
+        Callee(Node.Command command, Tiers tiers){
+            this.command = command;
+            this.tiers = tiers;
+            this.slotTypes = new String[command.frame.size()];
+            for (int i = 0; i < slotTypes.length; i++)
+                slotTypes[i] = command.frame.get(i).type;
+            this.givesNothing = command.returnType.equals("nothing");
+        }
+    }
+
+    /**
+     * what one run shares between its frames: the RAM, the universal variables, the output and what the last command gave
+     */
+    static final class Run {
+        final RAM memory;
+        final OutputSink sink;
+        final StringBuilder output = new StringBuilder();
+        int[] globals;
+        /**integers, chars and booleans (as 1 or 0) are given in returnInteger, doubles and words in the others*/
+        int returnInteger;
+        double returnDouble;
+        String returnWord;
+        /**how many commands deep the run is*/
+        int depth = 0;
+        /**what checks the run's limits as every command starts and before every loop's condition*/
+        final Safepoints safepoints;
+
+        Run(RAM memory, OutputSink sink, RunLimits limits){
+            this.memory = memory;
+            this.sink = sink;
+            this.safepoints = new Safepoints(limits);
+        }
+
+        /**
+         * called with the output once something has been added to it, handing it to the sink once there is a chunk
+         */
+        int print(StringBuilder appended){
+            if (appended.length() >= CHUNK)
+                flush();
+            return NORMAL;
+        }
+
+        void flush(){
+            if (output.length() > 0){
+                sink.write(output.toString());
+                output.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * the variables of one running command, as their handles in the RAM
+     */
+    static final class Frame {
+        final Run run;
+        final RAM memory;
+        final int[] globals, slots;
+
+        Frame(Run run, int[] slots){
+            this.run = run;
+            this.memory = run.memory;
+            this.globals = run.globals;
+            this.slots = slots;
+        }
+    }
+
+    /**
+     * a program made of closures, which can be run any number of times
+     */
+    static final class Program {
+        private final String[] globalTypes;
+        private final Stmt[] globals;
+        private final Callee start;
+        private final int line;
+
+        Program(String[] globalTypes, Stmt[] globals, Callee start, int line){
+            this.globalTypes = globalTypes;
+            this.globals = globals;
+            this.start = start;
+            this.line = line;
+        }
+
+        /**
+         * sets up the universal variables and runs start, with the variables in memory
+         * @param limits how many safepoints (command starts and times round a loop) and how long the run may take
+         */
+        void run(RAM memory, OutputSink sink, RunLimits limits){
+            Run run = new Run(memory, sink, limits);
+            run.globals = new int[globalTypes.length];
+            for (int i = 0; i < globalTypes.length; i++)
+                run.globals[i] = allocate(memory, globalTypes[i], 0);
+
+            Frame top = new Frame(run, new int[0]);
+
+            try {
+                for (Stmt declare: globals)
+                    declare.exec(top);
+                call(top, start, new Bind[0], line);
+            } finally {
+                run.flush();
+            }
+        }
+    }
+
+    /**every command, by its node*/
+    private IdentityHashMap<Node.Command, Callee> callees = new IdentityHashMap<>();
+    /**the command being compiled, and what it gives*/
+    private Callee current;
+    private String returnType;
+    /**what counts the calls and loops of the commands, or null to leave them all as closures*/
+    private final Tiers tiers;
+
+    ClosureCompiler(){
+        this(null);
+    }
+
+    ClosureCompiler(Tiers tiers){
+        this.tiers = tiers;
+    }
+
+    Program compile(Node.Program program){
+        for (Node.Command command: program.commands.values())
+            callees.put(command, new Callee(command, tiers));
+
+        for (Callee callee: callees.values()){
+            current = callee;
+            returnType = callee.command.returnType;
+            callee.body = callee.command.body == null ? frame -> NORMAL : statement(callee.command.body);
+        }
+
+        String[] globalTypes = new String[program.globals.size()];
+        Stmt[] globals = new Stmt[program.globals.size()];
+
+        for (int i = 0; i < globals.length; i++){
+            Node.Declare declare = program.globals.get(i);
+            globalTypes[declare.symbol.slot] = declare.symbol.type;
+            globals[i] = store(declare.symbol, declare.value, declare.line);
+        }
+
+        return new Program(globalTypes, globals, callees.get(program.commands.get("start")), program.line);
+    }
+
+    /*
+     * running: what the closures call that is too big to be in each of them
+     */
+
+    private static void fail(int line, String string){
+        throw new ProgramException(line, string);
+    }
+
+    private static int allocate(RAM memory, String type, int line){
+        int handle = memory.allocate(type);
+        if (handle == -1)
+            fail(line, "out of memory");
+        return handle;
+    }
+
+    /**
+     * @param caseNum what the RAM said to a write of symbol
+     */
+    private static int stored(int caseNum, Node.Symbol symbol, int line){
+        if (caseNum == -1)
+            fail(line, "out of memory");
+        else if (caseNum == -2)
+            fail(line, "incorrect input data for " + symbol.name + " for type " + symbol.type);
+        return NORMAL;
+    }
+
+    /**
+     * double -> integer, which only works if the double is whole and an integer can hold it
+     */
+    private static int toInteger(double value, int line){
+        if (value % 1 != 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            fail(line, "\"" + value + "\" given \"integer\" expected");
+        return (int) value;
+    }
+
+    /**
+     * passes the safepoint before a loop's condition
+     * @return true, so it can go before the condition
+     */
+    private static boolean safepoint(Frame frame, int line){
+        frame.run.safepoints.poll(line);
+        return true;
+    }
+
+    /**
+     * runs callee with its parameters set to the arguments, leaving what it gives in the Run
+     */
+    private static void call(Frame caller, Callee callee, Bind[] arguments, int line){
+        Run run = caller.run;
+        RAM memory = run.memory;
+
+        // every variable of the command gets its RAM now, and it is all given back at once by the mark
+        int mark = memory.mark();
+        int[] slots = new int[callee.slotTypes.length];
+        for (int i = 0; i < slots.length; i++)
+            slots[i] = allocate(memory, callee.slotTypes[i], line);
+
+        // the arguments are worked out in the caller's frame
+        for (int i = 0; i < arguments.length; i++)
+            arguments[i].bind(caller, slots[i]);
+
+        if (run.depth == 500)
+            fail(line, "just stop.");
+
+        run.depth++;
+        run.safepoints.poll(callee.command.line);
+        int result = callee.tiers == null ? callee.body.exec(new Frame(run, slots)) : callee.tiers.call(callee, run, slots);
+
+        if (result != GIVE && !callee.givesNothing)
+            fail(callee.command.line, "no return statement");
+
+        memory.release(mark);
+        run.depth--;
+    }
+
+    /*
+     * statements
+     */
+
+    private Stmt statement(Node.Statement statement){
+        int line = statement.line;
+
+        if (statement instanceof Node.Block)
+            return block((Node.Block) statement);
+        else if (statement instanceof Node.Declare){
+            Node.Declare declare = (Node.Declare) statement;
+            return store(declare.symbol, declare.value, line);
+        }
+        else if (statement instanceof Node.Assign){
+            Node.Assign assign = (Node.Assign) statement;
+            return store(assign.target.symbol, assign.value, line);
+        }
+        else if (statement instanceof Node.Output)
+            return output((Node.Output) statement);
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+            BoolExpr condition = bool(ifStatement.condition);
+            Stmt then = block(ifStatement.then);
+
+            if (ifStatement.otherwise == null)
+                return frame -> condition.eval(frame) ? then.exec(frame) : NORMAL;
+
+            Stmt otherwise = statement(ifStatement.otherwise);
+            return frame -> condition.eval(frame) ? then.exec(frame) : otherwise.exec(frame);
+        }
+        else if (statement instanceof Node.While){
+            Node.While loop = (Node.While) statement;
+            BoolExpr condition = bool(loop.condition);
+            Stmt body = loopBody(loop.body);
+
+            return frame -> {
+                while (safepoint(frame, line) && condition.eval(frame)){
+                    int result = body.exec(frame);
+                    if (result == BREAK)
+                        break;
+                    else if (result == GIVE)
+                        return GIVE;
+                }
+                return NORMAL;
+            };
+        }
+        else if (statement instanceof Node.DoWhile){
+            Node.DoWhile loop = (Node.DoWhile) statement;
+            Stmt body = loopBody(loop.body);
+            BoolExpr condition = bool(loop.condition);
+
+            return frame -> {
+                do {
+                    int result = body.exec(frame);
+                    if (result == BREAK)
+                        break;
+                    else if (result == GIVE)
+                        return GIVE;
+                } while (safepoint(frame, line) && condition.eval(frame));
+                return NORMAL;
+            };
+        }
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            Stmt init = statement(loop.init);
+            BoolExpr condition = bool(loop.condition);
+            Stmt body = loopBody(loop.body);
+            Stmt update = statement(loop.update);
+
+            return frame -> {
+                int result = NORMAL;
+                init.exec(frame);
+
+                while (safepoint(frame, line) && condition.eval(frame)){
+                    result = body.exec(frame);
+                    if (result != NORMAL)
+                        break;
+                    update.exec(frame);
+                }
+
+                return result == GIVE ? GIVE : NORMAL;
+            };
+        }
+        else if (statement instanceof Node.Break)
+            return frame -> BREAK;
+        else if (statement instanceof Node.Give)
+            return give(((Node.Give) statement).value);
+        else if (statement instanceof Node.Fail){
+            String message = ((Node.Fail) statement).message;
+            return frame -> {
+                fail(line, message);
+                return NORMAL;
+            };
+        }
+
+        Node.Call call = ((Node.CallStatement) statement).call;
+        Callee callee = callees.get(call.command);
+        Bind[] arguments = arguments(call);
+
+        return frame -> {
+            call(frame, callee, arguments, line);
+            return NORMAL;
+        };
+    }
+
+    /**
+     * the body of a loop, which also counts the times round it for the Tiers
+     */
+    private Stmt loopBody(Node.Block body){
+        Stmt block = block(body);
+        if (tiers == null)
+            return block;
+
+        Callee callee = current;
+        return frame -> {
+            tiers.loop(callee);
+            return block.exec(frame);
+        };
+    }
+
+    private Stmt block(Node.Block block){
+        Stmt[] statements = new Stmt[block.statements.size()];
+        for (int i = 0; i < statements.length; i++)
+            statements[i] = statement(block.statements.get(i));
+
+        if (statements.length == 0)
+            return frame -> NORMAL;
+        if (statements.length == 1)
+            return statements[0];
+
+        return frame -> {
+            for (Stmt statement: statements){
+                int result = statement.exec(frame);
+                if (result != NORMAL)
+                    return result;
+            }
+            return NORMAL;
+        };
+    }
+
+    /**
+     * works out value and writes it into symbol, converting between integer and double
+     */
+    private Stmt store(Node.Symbol symbol, Node.Expression value, int line){
+        int slot = symbol.slot;
+
+        switch (symbol.type){
+            case "integer": {
+                IntExpr expr = integer(value);
+                if (symbol.global)
+                    return frame -> stored(frame.memory.writeInteger(frame.globals[slot], expr.eval(frame)), symbol, line);
+                return frame -> stored(frame.memory.writeInteger(frame.slots[slot], expr.eval(frame)), symbol, line);
+            }
+            case "double": {
+                DoubleExpr expr = number(value);
+                if (symbol.global)
+                    return frame -> stored(frame.memory.writeDouble(frame.globals[slot], expr.eval(frame)), symbol, line);
+                return frame -> stored(frame.memory.writeDouble(frame.slots[slot], expr.eval(frame)), symbol, line);
+            }
+            case "char": {
+                IntExpr expr = character(value);
+                if (symbol.global)
+                    return frame -> stored(frame.memory.writeChar(frame.globals[slot], (char) expr.eval(frame)), symbol, line);
+                return frame -> stored(frame.memory.writeChar(frame.slots[slot], (char) expr.eval(frame)), symbol, line);
+            }
+            case "boolean": {
+                BoolExpr expr = bool(value);
+                if (symbol.global)
+                    return frame -> stored(frame.memory.writeBoolean(frame.globals[slot], expr.eval(frame)), symbol, line);
+                return frame -> stored(frame.memory.writeBoolean(frame.slots[slot], expr.eval(frame)), symbol, line);
+            }
+            default: {
+                WordExpr expr = word(value);
+                if (symbol.global)
+                    return frame -> stored(frame.memory.write(frame.globals[slot], expr.eval(frame)), symbol, line);
+                return frame -> stored(frame.memory.write(frame.slots[slot], expr.eval(frame)), symbol, line);
+            }
+        }
+    }
+
+    private Stmt output(Node.Output output){
+        Node.Expression value = output.value;
+        String end = output.newLine ? NEWLINE : "";
+
+        switch (value.type){
+            case "integer": {
+                IntExpr expr = integerValue(value);
+                return frame -> {
+                    int result = expr.eval(frame);
+                    return frame.run.print(frame.run.output.append(result).append(end));
+                };
+            }
+            case "double": {
+                DoubleExpr expr = doubleValue(value);
+                return frame -> {
+                    double result = expr.eval(frame);
+                    return frame.run.print(frame.run.output.append(result).append(end));
+                };
+            }
+            case "char": {
+                IntExpr expr = character(value);
+                return frame -> {
+                    char result = (char) expr.eval(frame);
+                    return frame.run.print(frame.run.output.append(result).append(end));
+                };
+            }
+            case "boolean": {
+                BoolExpr expr = bool(value);
+                return frame -> {
+                    boolean result = expr.eval(frame);
+                    return frame.run.print(frame.run.output.append(result).append(end));
+                };
+            }
+            default: {
+                WordExpr expr = word(value);
+                return frame -> {
+                    String result = expr.eval(frame);
+                    return frame.run.print(frame.run.output.append(result).append(end));
+                };
+            }
+        }
+    }
+
+    /**
+     * works out what the command being compiled gives, as the type it gives
+     */
+    private Stmt give(Node.Expression value){
+        if (value == null)
+            return frame -> GIVE;
+
+        switch (returnType){
+            case "integer": {
+                IntExpr expr = integer(value);
+                return frame -> {
+                    frame.run.returnInteger = expr.eval(frame);
+                    return GIVE;
+                };
+            }
+            case "double": {
+                DoubleExpr expr = number(value);
+                return frame -> {
+                    frame.run.returnDouble = expr.eval(frame);
+                    return GIVE;
+                };
+            }
+            case "char": {
+                IntExpr expr = character(value);
+                return frame -> {
+                    frame.run.returnInteger = expr.eval(frame);
+                    return GIVE;
+                };
+            }
+            case "boolean": {
+                BoolExpr expr = bool(value);
+                return frame -> {
+                    frame.run.returnInteger = expr.eval(frame) ? 1 : 0;
+                    return GIVE;
+                };
+            }
+            default: {
+                WordExpr expr = word(value);
+                return frame -> {
+                    frame.run.returnWord = expr.eval(frame);
+                    return GIVE;
+                };
+            }
+        }
+    }
+
+    /**
+     * @return how each argument of call is written into its parameter
+     */
+    private Bind[] arguments(Node.Call call){
+        List<Node.Symbol> params = call.command.params;
+        Bind[] binds = new Bind[call.arguments.size()];
+
+        for (int i = 0; i < binds.length; i++){
+            Node.Symbol param = params.get(i);
+            Node.Expression value = call.arguments.get(i);
+            int line = call.line;
+
+            switch (param.type){
+                case "integer": {
+                    IntExpr expr = integer(value);
+                    binds[i] = (caller, handle) -> stored(caller.memory.writeInteger(handle, expr.eval(caller)), param, line);
+                    break;
+                }
+                case "double": {
+                    DoubleExpr expr = number(value);
+                    binds[i] = (caller, handle) -> stored(caller.memory.writeDouble(handle, expr.eval(caller)), param, line);
+                    break;
+                }
+                case "char": {
+                    IntExpr expr = character(value);
+                    binds[i] = (caller, handle) -> stored(caller.memory.writeChar(handle, (char) expr.eval(caller)), param, line);
+                    break;
+                }
+                case "boolean": {
+                    BoolExpr expr = bool(value);
+                    binds[i] = (caller, handle) -> stored(caller.memory.writeBoolean(handle, expr.eval(caller)), param, line);
+                    break;
+                }
+                default: {
+                    WordExpr expr = word(value);
+                    binds[i] = (caller, handle) -> stored(caller.memory.write(handle, expr.eval(caller)), param, line);
+                }
+            }
+        }
+
+        return binds;
+    }
+
+    /*
+     * expressions, each compiled on the path for its type
+     */
+
+    /**
+     * @return expression, an integer or a double, as an integer
+     */
+    private IntExpr integer(Node.Expression expression){
+        if (!expression.type.equals("double"))
+            return integerValue(expression);
+
+        DoubleExpr expr = doubleValue(expression);
+        int line = expression.line;
+        return frame -> toInteger(expr.eval(frame), line);
+    }
+
+    /**
+     * @return expression, an integer or a double, as a double
+     */
+    private DoubleExpr number(Node.Expression expression){
+        if (!expression.type.equals("integer"))
+            return doubleValue(expression);
+
+        IntExpr expr = integerValue(expression);
+        return frame -> expr.eval(frame);
+    }
+
+    private IntExpr integerValue(Node.Expression expression){
+        if (expression instanceof Node.Literal){
+            int value = (int) ((Node.Literal) expression).value;
+            return frame -> value;
+        }
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+            int slot = symbol.slot;
+            if (symbol.global)
+                return frame -> frame.memory.readInteger(frame.globals[slot]);
+            return frame -> frame.memory.readInteger(frame.slots[slot]);
+        }
+        else if (expression instanceof Node.Unary){
+            IntExpr operand = integerValue(((Node.Unary) expression).operand);
+            return frame -> -operand.eval(frame);
+        }
+        else if (expression instanceof Node.Call){
+            Node.Call call = (Node.Call) expression;
+            Callee callee = callees.get(call.command);
+            Bind[] arguments = arguments(call);
+            int line = call.line;
+
+            return frame -> {
+                call(frame, callee, arguments, line);
+                return frame.run.returnInteger;
+            };
+        }
+
+        Node.Binary binary = (Node.Binary) expression;
+        IntExpr left = integerValue(binary.left);
+        int line = binary.line;
+
+        // a literal on the right is bound in, and a division by one that is not zero needs no check
+        if (binary.right instanceof Node.Literal){
+            int right = (int) ((Node.Literal) binary.right).value;
+
+            switch (binary.operator){
+                case "+":
+                    return frame -> left.eval(frame) + right;
+                case "-":
+                    return frame -> left.eval(frame) - right;
+                case "*":
+                    return frame -> left.eval(frame) * right;
+                case "%":
+                    if (right != 0)
+                        return frame -> left.eval(frame) % right;
+                    break;
+                default:
+                    if (right != 0)
+                        return frame -> left.eval(frame) / right;
+            }
+        }
+
+        IntExpr right = integerValue(binary.right);
+
+        switch (binary.operator){
+            case "+":
+                return frame -> left.eval(frame) + right.eval(frame);
+            case "-":
+                return frame -> left.eval(frame) - right.eval(frame);
+            case "*":
+                return frame -> left.eval(frame) * right.eval(frame);
+            case "%":
+                return frame -> {
+                    int val1 = left.eval(frame), val2 = right.eval(frame);
+                    if (val2 == 0)
+                        fail(line, "Don't break math");
+                    return val1 % val2;
+                };
+            default:
+                return frame -> {
+                    int val1 = left.eval(frame), val2 = right.eval(frame);
+                    if (val2 == 0)
+                        fail(line, "Don't break math");
+                    return val1 / val2;
+                };
+        }
+    }
+
+    private DoubleExpr doubleValue(Node.Expression expression){
+        if (expression instanceof Node.Literal){
+            double value = (double) ((Node.Literal) expression).value;
+            return frame -> value;
+        }
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+            int slot = symbol.slot;
+            if (symbol.global)
+                return frame -> frame.memory.readDouble(frame.globals[slot]);
+            return frame -> frame.memory.readDouble(frame.slots[slot]);
+        }
+        else if (expression instanceof Node.Unary){
+            DoubleExpr operand = doubleValue(((Node.Unary) expression).operand);
+            return frame -> -operand.eval(frame);
+        }
+        else if (expression instanceof Node.Call){
+            Node.Call call = (Node.Call) expression;
+            Callee callee = callees.get(call.command);
+            Bind[] arguments = arguments(call);
+            int line = call.line;
+
+            return frame -> {
+                call(frame, callee, arguments, line);
+                return frame.run.returnDouble;
+            };
+        }
+
+        // a double sum can still have an integer on one side
+        Node.Binary binary = (Node.Binary) expression;
+        DoubleExpr left = number(binary.left);
+        DoubleExpr right = number(binary.right);
+        int line = binary.line;
+
+        switch (binary.operator){
+            case "+":
+                return frame -> left.eval(frame) + right.eval(frame);
+            case "-":
+                return frame -> left.eval(frame) - right.eval(frame);
+            case "*":
+                return frame -> left.eval(frame) * right.eval(frame);
+            case "%":
+                return frame -> left.eval(frame) % right.eval(frame);
+            default:
+                return frame -> {
+                    double val1 = left.eval(frame), val2 = right.eval(frame);
+                    if (val2 == 0)
+                        fail(line, "Don't break math");
+                    return val1 / val2;
+                };
+        }
+    }
+
+    private IntExpr character(Node.Expression expression){
+        if (expression instanceof Node.Literal){
+            char value = (char) ((Node.Literal) expression).value;
+            return frame -> value;
+        }
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+            int slot = symbol.slot;
+            if (symbol.global)
+                return frame -> frame.memory.readChar(frame.globals[slot]);
+            return frame -> frame.memory.readChar(frame.slots[slot]);
+        }
+
+        Node.Call call = (Node.Call) expression;
+        Callee callee = callees.get(call.command);
+        Bind[] arguments = arguments(call);
+        int line = call.line;
+
+        return frame -> {
+            call(frame, callee, arguments, line);
+            return (char) frame.run.returnInteger;
+        };
+    }
+
+    private WordExpr word(Node.Expression expression){
+        if (expression instanceof Node.Literal){
+            String value = (String) ((Node.Literal) expression).value;
+            return frame -> value;
+        }
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+            int slot = symbol.slot;
+            if (symbol.global)
+                return frame -> (String) frame.memory.read(frame.globals[slot]);
+            return frame -> (String) frame.memory.read(frame.slots[slot]);
+        }
+
+        Node.Call call = (Node.Call) expression;
+        Callee callee = callees.get(call.command);
+        Bind[] arguments = arguments(call);
+        int line = call.line;
+
+        return frame -> {
+            call(frame, callee, arguments, line);
+            return frame.run.returnWord;
+        };
+    }
+
+    private BoolExpr bool(Node.Expression expression){
+        if (expression instanceof Node.Literal){
+            boolean value = (boolean) ((Node.Literal) expression).value;
+            return frame -> value;
+        }
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+            int slot = symbol.slot;
+            if (symbol.global)
+                return frame -> frame.memory.readBoolean(frame.globals[slot]);
+            return frame -> frame.memory.readBoolean(frame.slots[slot]);
+        }
+        else if (expression instanceof Node.Unary){
+            BoolExpr operand = bool(((Node.Unary) expression).operand);
+            return frame -> !operand.eval(frame);
+        }
+        else if (expression instanceof Node.Call){
+            Node.Call call = (Node.Call) expression;
+            Callee callee = callees.get(call.command);
+            Bind[] arguments = arguments(call);
+            int line = call.line;
+
+            return frame -> {
+                call(frame, callee, arguments, line);
+                return frame.run.returnInteger != 0;
+            };
+        }
+
+        Node.Binary binary = (Node.Binary) expression;
+        String operator = binary.operator;
+
+        // the right side is only worked out if the left does not decide
+        if (operator.equals("|") || operator.equals("&")){
+            BoolExpr left = bool(binary.left), right = bool(binary.right);
+            if (operator.equals("|"))
+                return frame -> left.eval(frame) || right.eval(frame);
+            return frame -> left.eval(frame) && right.eval(frame);
+        }
+
+        // relations, on whatever type the two sides are
+        String type = binary.left.type;
+        boolean equals = operator.equals("=");
+
+        if (type.equals("word")){
+            WordExpr left = word(binary.left), right = word(binary.right);
+            return frame -> left.eval(frame).equals(right.eval(frame)) == equals;
+        }
+        else if (type.equals("boolean")){
+            BoolExpr left = bool(binary.left), right = bool(binary.right);
+            return frame -> (left.eval(frame) == right.eval(frame)) == equals;
+        }
+        else if (type.equals("char"))
+            return compare(operator, character(binary.left), character(binary.right));
+        else if (type.equals("integer") && binary.right.type.equals("integer")){
+            IntExpr left = integerValue(binary.left);
+
+            if (binary.right instanceof Node.Literal)
+                return compare(operator, left, (int) ((Node.Literal) binary.right).value);
+            return compare(operator, left, integerValue(binary.right));
+        }
+
+        // NaN is neither bigger, smaller nor equal, so each operator is its own comparison
+        DoubleExpr left = number(binary.left), right = number(binary.right);
+
+        switch (operator){
+            case "=":
+                return frame -> left.eval(frame) == right.eval(frame);
+            case "!=":
+                return frame -> left.eval(frame) != right.eval(frame);
+            case "<":
+                return frame -> left.eval(frame) < right.eval(frame);
+            case ">":
+                return frame -> left.eval(frame) > right.eval(frame);
+            case "=<":
+                return frame -> left.eval(frame) <= right.eval(frame);
+            default:
+                return frame -> left.eval(frame) >= right.eval(frame);
+        }
+    }
+
+    private BoolExpr compare(String operator, IntExpr left, IntExpr right){
+        switch (operator){
+            case "=":
+                return frame -> left.eval(frame) == right.eval(frame);
+            case "!=":
+                return frame -> left.eval(frame) != right.eval(frame);
+            case "<":
+                return frame -> left.eval(frame) < right.eval(frame);
+            case ">":
+                return frame -> left.eval(frame) > right.eval(frame);
+            case "=<":
+                return frame -> left.eval(frame) <= right.eval(frame);
+            default:
+                return frame -> left.eval(frame) >= right.eval(frame);
+        }
+    }
+
+    private BoolExpr compare(String operator, IntExpr left, int right){
+        switch (operator){
+            case "=":
+                return frame -> left.eval(frame) == right;
+            case "!=":
+                return frame -> left.eval(frame) != right;
+            case "<":
+                return frame -> left.eval(frame) < right;
+            case ">":
+                return frame -> left.eval(frame) > right;
+            case "=<":
+                return frame -> left.eval(frame) <= right;
+            default:
+                return frame -> left.eval(frame) >= right;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.PrintStream;
+
+/**
+ * a program compiled by an Engine. it is never changed once it is made: every run gets a VirtualMachine
+ * and RAM of its own, so it can be run any number of times, one after another or at the same time
+ */
+public final class CompiledProgram
+{
+    private final String name;
+    private final Bytecode bytecode;
+    /**how much memory each run gets, and what it may do unless it is given limits of its own*/
+    private final int memoryLimit;
+    private final RunLimits limits;
+
+    CompiledProgram(String name, Bytecode bytecode, int memoryLimit, RunLimits limits){
+        this.name = name;
+        this.bytecode = bytecode;
+        this.memoryLimit = memoryLimit;
+        this.limits = limits;
+    }
+
+    /**
+     * @return what the program is called
+     */
+    public String name(){
+        return name;
+    }
+
+    /**
+     * @return what each run may do unless it is given limits of its own
+     */
+    public RunLimits limits(){
+        return limits;
+    }
+
+    /**
+     * runs the program
+     * @return everything it output
+     * @throws ProgramException if it goes wrong, such as breaking math or running out of memory
+     */
+    public String run(){
+        return run(limits);
+    }
+
+    /**
+     * runs the program, stopping it if it goes past limits
+     * @return everything it output
+     * @throws ProgramException if it goes wrong or runs out of steps or time
+     */
+    public String run(RunLimits limits){
+        StringBuilder output = new StringBuilder();
+        execution(output::append, limits).run();
+        return output.toString();
+    }
+
+    /**
+     * runs the program, printing to out as it goes
+     * @throws ProgramException if it goes wrong, in which case out has what it output up to then
+     */
+    public void run(PrintStream out){
+        try {
+            run(OutputSink.of(out));
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * runs the program, handing its output to sink a chunk at a time
+     * @throws ProgramException if it goes wrong, in which case sink has had what it output up to then
+     */
+    public void run(OutputSink sink){
+        execution(sink, limits).run();
+    }
+
+    /**
+     * @return a run of the program that has not started yet, to be run on this thread, given to a Scheduler
+     *         or cancelled from another thread
+     */
+    public Execution execution(OutputSink sink, RunLimits limits){
+        return new Execution(bytecode, new RAM(memoryLimit), sink, limits);
+    }
+
+    /**
+     * runs the program with its variables in memory, which should be fresh
+     */
+    void run(OutputSink sink, RAM memory){
+        new Execution(bytecode, memory, sink, limits).run();
+    }
+
+    /**
+     * @return the bytecode of the program, as the Disassembler lists it
+     */
+    public String disassemble(){
+        return new Disassembler(bytecode).disassemble();
+    }
+}
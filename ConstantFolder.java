@@ -0,0 +1,288 @@
+/**
+ * works out everything that can be worked out before the program runs: sums of literals become one literal,
+ * x * 1, x + 0 and the like become x, and an if or while on a constant condition loses the branch that can never run.
+ * it runs on the tree straight after the Parser, so every backend gets the simpler program.
+ * a division by zero is left as it is, so it still breaks math when (and only if) it is run
+ */
+public class ConstantFolder
+{
+    void fold(Node.Program program){
+        for (Node.Declare declare: program.globals)
+            declare.value = expression(declare.value);
+
+        for (Node.Command command: program.commands.values())
+            if (command.body != null)
+                block(command.body);
+    }
+
+    /*
+     * statements
+     */
+
+    private void block(Node.Block block){
+        for (int i = 0; i < block.statements.size(); i++)
+            block.statements.set(i, statement(block.statements.get(i)));
+    }
+
+    /**
+     * @return statement, simplified, or what it is left as when its condition is known
+     */
+    private Node.Statement statement(Node.Statement statement){
+        if (statement instanceof Node.Block)
+            block((Node.Block) statement);
+        else if (statement instanceof Node.Declare){
+            Node.Declare declare = (Node.Declare) statement;
+            declare.value = expression(declare.value);
+        }
+        else if (statement instanceof Node.Assign){
+            Node.Assign assign = (Node.Assign) statement;
+            assign.value = expression(assign.value);
+        }
+        else if (statement instanceof Node.Output){
+            Node.Output output = (Node.Output) statement;
+            output.value = expression(output.value);
+        }
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+            ifStatement.condition = expression(ifStatement.condition);
+            block(ifStatement.then);
+            if (ifStatement.otherwise != null)
+                ifStatement.otherwise = statement(ifStatement.otherwise);
+
+            if (ifStatement.condition instanceof Node.Literal){
+                if ((boolean) ((Node.Literal) ifStatement.condition).value)
+                    return ifStatement.then;
+                return ifStatement.otherwise != null ? ifStatement.otherwise : new Node.Block(ifStatement.line);
+            }
+        }
+        else if (statement instanceof Node.While){
+            Node.While loop = (Node.While) statement;
+            loop.condition = expression(loop.condition);
+            block(loop.body);
+
+            if (isFalse(loop.condition))
+                return new Node.Block(loop.line);
+        }
+        else if (statement instanceof Node.DoWhile){
+            // the body always runs once, and a break in it belongs to this loop, so it is kept even if the condition is false
+            Node.DoWhile loop = (Node.DoWhile) statement;
+            block(loop.body);
+            loop.condition = expression(loop.condition);
+        }
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            loop.init = statement(loop.init);
+            loop.condition = expression(loop.condition);
+            statement(loop.update);
+            block(loop.body);
+
+            if (isFalse(loop.condition))
+                return loop.init;
+        }
+        else if (statement instanceof Node.Give){
+            Node.Give give = (Node.Give) statement;
+            if (give.value != null)
+                give.value = expression(give.value);
+        }
+        else if (statement instanceof Node.CallStatement)
+            arguments(((Node.CallStatement) statement).call);
+
+        return statement;
+    }
+
+    private boolean isFalse(Node.Expression condition){
+        return condition instanceof Node.Literal && !(boolean) ((Node.Literal) condition).value;
+    }
+
+    /*
+     * expressions
+     */
+
+    /**
+     * @return expression, simplified as far as it can be
+     */
+    private Node.Expression expression(Node.Expression expression){
+        if (expression instanceof Node.Binary)
+            return binary((Node.Binary) expression);
+        else if (expression instanceof Node.Unary)
+            return unary((Node.Unary) expression);
+        else if (expression instanceof Node.Call)
+            arguments((Node.Call) expression);
+
+        return expression;
+    }
+
+    private void arguments(Node.Call call){
+        for (int i = 0; i < call.arguments.size(); i++)
+            call.arguments.set(i, expression(call.arguments.get(i)));
+    }
+
+    private Node.Expression unary(Node.Unary unary){
+        unary.operand = expression(unary.operand);
+        Node.Expression operand = unary.operand;
+
+        if (operand instanceof Node.Literal){
+            Object value = ((Node.Literal) operand).value;
+
+            if (unary.operator.equals("!"))
+                return new Node.Literal(!(boolean) value, unary.type, unary.line);
+            else if (value instanceof Integer)
+                return new Node.Literal(-(int) value, unary.type, unary.line);
+            else
+                return new Node.Literal(-(double) value, unary.type, unary.line);
+        }
+
+        // !!x and --x
+        if (operand instanceof Node.Unary && ((Node.Unary) operand).operator.equals(unary.operator))
+            return ((Node.Unary) operand).operand;
+
+        return unary;
+    }
+
+    private Node.Expression binary(Node.Binary binary){
+        binary.left = expression(binary.left);
+        binary.right = expression(binary.right);
+
+        if (binary.left instanceof Node.Literal && binary.right instanceof Node.Literal){
+            Object value = fold(binary.operator, ((Node.Literal) binary.left).value, ((Node.Literal) binary.right).value);
+            if (value != null)
+                return new Node.Literal(value, binary.type, binary.line);
+        }
+
+        return identity(binary);
+    }
+
+    /**
+     * @return the value of the two literals put through operator, or null if it has to wait to break math when it runs
+     */
+    private Object fold(String operator, Object val1, Object val2){
+        switch (operator){
+            case "|":
+                return (boolean) val1 | (boolean) val2;
+            case "&":
+                return (boolean) val1 & (boolean) val2;
+        }
+
+        // the Parser only lets these be compared with = and !=
+        if (val1 instanceof Boolean || val1 instanceof Character || val1 instanceof String)
+            return operator.equals("=") == val1.equals(val2);
+
+        if (val1 instanceof Integer && val2 instanceof Integer){
+            int a = (int) val1, b = (int) val2;
+
+            switch (operator){
+                case "+":
+                    return a + b;
+                case "-":
+                    return a - b;
+                case "*":
+                    return a * b;
+                case "%":
+                    return b == 0 ? null : (Object) (a % b);
+                case "/":
+                    return b == 0 ? null : (Object) (a / b);
+                default:
+                    return compare(operator, a, b);
+            }
+        }
+
+        double a = toDouble(val1), b = toDouble(val2);
+
+        switch (operator){
+            case "+":
+                return a + b;
+            case "-":
+                return a - b;
+            case "*":
+                return a * b;
+            case "%":
+                return a % b;
+            case "/":
+                return b == 0 ? null : (Object) (a / b);
+            default:
+                return compare(operator, a, b);
+        }
+    }
+
+    private boolean compare(String operator, double a, double b){
+        switch (operator){
+            case "=":
+                return a == b;
+            case "!=":
+                return a != b;
+            case "<":
+                return a < b;
+            case ">":
+                return a > b;
+            case "=<":
+                return a <= b;
+            default:
+                return a >= b;
+        }
+    }
+
+    private double toDouble(Object value){
+        return value instanceof Double ? (double) value : (int) value;
+    }
+
+    /**
+     * x * 1, 1 * x, x / 1, x + 0, 0 + x, x - 0, x & true and x | false all become x, as long as x is already
+     * the type of the whole expression. adding a double 0 is left alone, since -0.0 + 0 is 0.0.
+     * false & x and true | x never work out x, so they are just false and true
+     */
+    private Node.Expression identity(Node.Binary binary){
+        Node.Expression left = binary.left, right = binary.right;
+
+        switch (binary.operator){
+            case "*":
+                if (isLiteral(right, 1) && left.type.equals(binary.type))
+                    return left;
+                if (isLiteral(left, 1) && right.type.equals(binary.type))
+                    return right;
+                break;
+            case "/":
+                if (isLiteral(right, 1) && left.type.equals(binary.type))
+                    return left;
+                break;
+            case "+":
+                if (binary.type.equals("integer") && isLiteral(right, 0))
+                    return left;
+                if (binary.type.equals("integer") && isLiteral(left, 0))
+                    return right;
+                break;
+            case "-":
+                if (binary.type.equals("integer") && isLiteral(right, 0))
+                    return left;
+                break;
+            case "&":
+                if (isLiteral(left, false))
+                    return left;
+                if (isLiteral(right, true))
+                    return left;
+                if (isLiteral(left, true))
+                    return right;
+                break;
+            case "|":
+                if (isLiteral(left, true))
+                    return left;
+                if (isLiteral(right, false))
+                    return left;
+                if (isLiteral(left, false))
+                    return right;
+                break;
+        }
+
+        return binary;
+    }
+
+    private boolean isLiteral(Node.Expression expression, int number){
+        if (!(expression instanceof Node.Literal))
+            return false;
+        Object value = ((Node.Literal) expression).value;
+        return value instanceof Integer && (int) value == number || value instanceof Double && (double) value == number;
+    }
+
+    private boolean isLiteral(Node.Expression expression, boolean bool){
+        return expression instanceof Node.Literal && ((Node.Literal) expression).value.equals(bool);
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * prints Bytecode in a readable form, to see what a program turns into
+ */
+public class Disassembler
+{
+    private Bytecode program;
+
+    Disassembler(Bytecode program){
+        this.program = program;
+    }
+
+    /**
+     * @return the constant pool, the universal variables and then every command with its instructions
+     */
+    String disassemble(){
+        StringBuilder st = new StringBuilder();
+
+        st.append("constants:\n");
+        for (int i = 0; i < program.constants.length; i++)
+            st.append(String.format("    #%-4d %s%n", i, constant(i)));
+
+        st.append("universal:\n");
+        for (int i = 0; i < program.globalNames.length; i++)
+            st.append(String.format("    %-5d %s %s%n", i, program.globalTypes[i], program.globalNames[i]));
+
+        for (Bytecode.Method method: program.methods){
+            st.append(String.format("%n%s [slots %d, stack %d]%n", method, method.slotNames.length, method.maxStack));
+
+            int end = program.code.length;
+            for (Bytecode.Method other: program.methods)
+                if (other.entry > method.entry && other.entry < end)
+                    end = other.entry;
+
+            for (int pc = method.entry; pc < end; pc += 1 + Opcode.OPERANDS[program.code[pc]])
+                st.append(instruction(method, pc)).append("\n");
+        }
+
+        return st.toString();
+    }
+
+    /**
+     * @return the instruction at pc, with a note on what its operand means
+     */
+    String instruction(Bytecode.Method method, int pc){
+        int op = program.code[pc];
+        String text = String.format("    %5d  %-15s", pc, Opcode.NAMES[op]);
+
+        if (Opcode.OPERANDS[op] == 0)
+            return String.format("%-31s// line %d", text, program.lines[pc] + 1);
+
+        int operand = program.code[pc + 1];
+        String note;
+
+        if (op == Opcode.CONST_DOUBLE || op == Opcode.CONST_WORD || op == Opcode.FAIL)
+            note = constant(operand);
+        else if (op >= Opcode.LOAD_INT && op <= Opcode.STORE_WORD)
+            note = method.slotNames[operand];
+        else if (op >= Opcode.GLOAD_INT && op <= Opcode.GSTORE_WORD)
+            note = "universal " + program.globalNames[operand];
+        else if (op == Opcode.CALL || op == Opcode.TAIL_CALL)
+            note = program.methods[operand].name;
+        else
+            note = "";
+
+        return String.format("%-31s// line %d %s", text + operand, program.lines[pc] + 1, note).stripTrailing();
+    }
+
+    private String constant(int index){
+        Object value = program.constants[index];
+        return value instanceof String ? "\"" + value + "\"" : value.toString();
+    }
+}
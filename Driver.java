@@ -1,9 +1,178 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 public class Driver
 {
+    /**what --help prints*/
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "java Driver [file] [--interpret | --closures | --tiered | --disassemble | --jar [out.jar]] [--memory bits] [--swap pages]",
+            "            [--stats] [--cache directory | --no-cache] [--steps n] [--timeout ms]",
+            "java Driver --batch directory|manifest [--threads n | --virtual | --slice ms] [--repeat n] [--memory bits]",
+            "            [--cache directory | --no-cache] [--steps n] [--timeout ms]",
+            "java Driver [file] --load [--concurrency n] [--threads n | --virtual] [--memory bits] [--steps n] [--timeout ms]",
+            "",
+            "how deep commands may call each other depends on the mode: the bytecode VM (the default, and --batch and --load)",
+            "keeps its call stack in the RAM, so it goes as deep as --memory allows and a tail call takes no room at all.",
+            "--interpret, --closures, --tiered and jars recurse on the Java stack and stop at 500 deep with \"just stop.\"");
+
+    /**
+     * see USAGE, which --help prints
+     */
     public static void main(String[] args) {
         String fileName  = "copycode.txt";
+        String mode = "run";
+        String output = null;
+        String batch = null;
+        int memoryLimit = RAM.DEFAULT_LIMIT, residentPages = 0;
+        int threads = Runtime.getRuntime().availableProcessors(), repeat = 1, concurrency = 10000;
+        long steps = 0, timeout = 0, slice = 0;
+        boolean virtual = false;
+        boolean stats = false;
+        Path cacheDirectory = Paths.get(System.getProperty("user.home"), ".cache", "java-compiler");
+
+        for (int i = 0; i < args.length; i++){
+            if (args[i].equals("--help")){
+                System.out.println(USAGE);
+                return;
+            }
+            else if (args[i].equals("--interpret"))
+                mode = "interpret";
+            else if (args[i].equals("--closures"))
+                mode = "closures";
+            else if (args[i].equals("--tiered"))
+                mode = "tiered";
+            else if (args[i].equals("--disassemble"))
+                mode = "disassemble";
+            else if (args[i].equals("--jar")) {
+                mode = "jar";
+                if (i + 1 < args.length && args[i + 1].endsWith(".jar"))
+                    output = args[++i];
+            }
+            else if (args[i].equals("--memory")){
+                long bits = number(args, ++i, 1, Long.MAX_VALUE);
+                if (bits > RAM.MAX_LIMIT)
+                    usage("--memory can be at most " + RAM.MAX_LIMIT + " bits (256 MB), as the RAM finds each bit by an int");
+                memoryLimit = (int) bits;
+            }
+            else if (args[i].equals("--swap"))
+                residentPages = (int) number(args, ++i, 0, Integer.MAX_VALUE);
+            else if (args[i].equals("--stats"))
+                stats = true;
+            else if (args[i].equals("--cache") && i + 1 < args.length)
+                cacheDirectory = Paths.get(args[++i]);
+            else if (args[i].equals("--no-cache"))
+                cacheDirectory = null;
+            else if (args[i].equals("--batch") && i + 1 < args.length)
+                batch = args[++i];
+            else if (args[i].equals("--threads"))
+                threads = (int) number(args, ++i, 1, Integer.MAX_VALUE);
+            else if (args[i].equals("--repeat"))
+                repeat = (int) number(args, ++i, 1, Integer.MAX_VALUE);
+            else if (args[i].equals("--virtual"))
+                virtual = true;
+            else if (args[i].equals("--load"))
+                mode = "load";
+            else if (args[i].equals("--concurrency"))
+                concurrency = (int) number(args, ++i, 1, Integer.MAX_VALUE);
+            else if (args[i].equals("--steps"))
+                steps = number(args, ++i, 0, Long.MAX_VALUE);
+            else if (args[i].equals("--timeout"))
+                timeout = number(args, ++i, 0, Long.MAX_VALUE);
+            else if (args[i].equals("--slice"))
+                slice = number(args, ++i, 0, Long.MAX_VALUE);
+            else
+                fileName = args[i];
+        }
+
+        Engine engine = new Engine(memoryLimit, cacheDirectory, new RunLimits(steps, timeout));
+
+        if (batch != null){
+            runBatch(Paths.get(batch), engine, threads, repeat, virtual, slice);
+            return;
+        }
+
+        if (mode.equals("load")){
+            try (ScriptHost host = new ScriptHost(virtual, threads)){
+                new LoadTest(host, engine.compile(Paths.get(fileName))).run(concurrency, System.out);
+            } catch (ProgramException e){
+                System.out.print("\n\n" + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
+
+        RAM memory = new RAM(memoryLimit);
+
+        if (residentPages > 0){
+            try {
+                Path swapFile = Files.createTempFile("ram", ".swap");
+                swapFile.toFile().deleteOnExit();
+                memory.swapTo(swapFile, residentPages);
+            } catch (IOException | IllegalArgumentException e){
+                System.out.print("\n\nError making the swap file:" + e.getMessage() + ".");
+                System.exit(1);
+            }
+        }
 
-        Compiler compiler = new Compiler(fileName);
+        // the stats are printed before exiting, as the runs that fail are the ones worth tuning
+        boolean failed = false;
+        try {
+            new Compiler(mode, engine, memory, stats ? System.err : null).run(fileName, output);
+        } catch (ProgramException e){
+            System.out.print("\n\n" + e.getMessage());
+            failed = true;
+        } finally {
+            if (stats)
+                System.err.println(memory.stats());
+        }
+
+        if (failed)
+            System.exit(1);
+    }
+
+    /**
+     * @return the number at args[i], the value of the option before it
+     */
+    private static long number(String[] args, int i, long min, long max){
+        String option = args[i - 1];
+        if (i == args.length)
+            usage(option + " needs a number");
+
+        try {
+            long value = Long.parseLong(args[i]);
+            if (value < min || value > max)
+                usage(option + " has to be from " + min + " to " + max + ", not " + value);
+            return value;
+        } catch (NumberFormatException e){
+            usage(option + " needs a number, not \"" + args[i] + "\"");
+            return 0;
+        }
+    }
+
+    /**
+     * ends the run over a bad argument, with what was wrong with it and then USAGE
+     */
+    private static void usage(String problem){
+        System.err.println("Error:" + problem + ".");
+        System.err.println(USAGE);
+        System.exit(1);
+    }
 
+    /**
+     * runs every script in batch on a pool of threads and reports how it went, exiting with 1 if any run failed
+     */
+    private static void runBatch(Path batch, Engine engine, int threads, int repeat, boolean virtual, long slice){
+        try {
+            int failures = new BatchRunner(engine, threads, repeat, virtual, slice).run(BatchRunner.scripts(batch), System.out);
+            System.exit(failures == 0 ? 0 : 1);
+        } catch (IOException e){
+            System.out.print("\n\nError reading " + batch + ":" + e.getMessage() + ".");
+            System.exit(1);
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
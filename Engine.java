@@ -0,0 +1,138 @@
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * runs programs inside another Java program. compiling gives a CompiledProgram, which never changes,
+ * so one compile can be run any number of times, from any number of threads, every run with its own variables.
+ * nothing here prints an error or stops the JVM: a program that is wrong, or goes wrong, throws a ProgramException
+ */
+public class Engine
+{
+    /**how much memory each run gets*/
+    private final int memoryLimit;
+    /**where compiled programs are kept between JVMs, or null to always compile*/
+    private final BytecodeCache cache;
+    /**what each run may do unless it is given limits of its own*/
+    private final RunLimits limits;
+
+    public Engine(){
+        this(RAM.DEFAULT_LIMIT);
+    }
+
+    /**
+     * @param memoryLimit how many bits of RAM each run of a program gets
+     */
+    public Engine(int memoryLimit){
+        this(memoryLimit, null);
+    }
+
+    /**
+     * @param cacheDirectory where compiled programs are kept, so the next JVM to compile the same code
+     *                       does not have to, or null to always compile
+     */
+    public Engine(int memoryLimit, Path cacheDirectory){
+        this(memoryLimit, cacheDirectory, RunLimits.NONE);
+    }
+
+    /**
+     * @param limits how many instructions and how long each run of a program may take, unless it is given its own
+     */
+    public Engine(int memoryLimit, Path cacheDirectory, RunLimits limits){
+        this.memoryLimit = memoryLimit;
+        this.cache = cacheDirectory == null ? null : new BytecodeCache(cacheDirectory);
+        this.limits = limits;
+    }
+
+    /**
+     * @return what each run may do unless it is given limits of its own
+     */
+    RunLimits limits(){
+        return limits;
+    }
+
+    /**
+     * @return the program in file, compiled
+     * @throws ProgramException if the file cannot be read or the program in it is wrong
+     */
+    public CompiledProgram compile(Path file){
+        return compile(open(file));
+    }
+
+    /**
+     * @param name what the program is called, for naming what is made from it
+     * @return the program in code, compiled
+     * @throws ProgramException if the program is wrong
+     */
+    public CompiledProgram compile(String name, CharSequence code){
+        return compile(Source.text(name, code));
+    }
+
+    /**
+     * compiles the code in source, which is closed once it has been read
+     */
+    CompiledProgram compile(Source source){
+        return new CompiledProgram(source.name, bytecode(source), memoryLimit, limits);
+    }
+
+    /**
+     * @return the code in source compiled to bytecode, straight from the cache if it has been compiled before
+     */
+    private Bytecode bytecode(Source source){
+        if (cache == null)
+            return new BytecodeCompiler().compile(parse(source));
+
+        byte[] hash;
+        try {
+            hash = source.hash();
+        } catch (IOException e){
+            throw new ProgramException("Error reading " + source.name + ":" + e.getMessage() + ".");
+        }
+
+        Bytecode bytecode = cache.load(hash);
+
+        if (bytecode != null){
+            try {
+                source.close();
+            } catch (IOException ignored) {
+                // nothing was read from it
+            }
+            return bytecode;
+        }
+
+        bytecode = new BytecodeCompiler().compile(parse(source));
+        cache.save(hash, bytecode);
+        return bytecode;
+    }
+
+    /**
+     * @return the tree of the code in source, simplified and with every variable resolved
+     */
+    static Node.Program parse(Source source){
+        Node.Program program = null;
+
+        try (Source code = source){
+            program = new Parser(code).program();
+        } catch (IOException ignored) {
+            // it has all been read by now, so failing to close it loses nothing
+        }
+
+        new ConstantFolder().fold(program);
+        new Resolver().resolve(program);
+        return program;
+    }
+
+    /**
+     * @return the code in file
+     * @throws ProgramException if it cannot be opened
+     */
+    static Source open(Path file){
+        try {
+            return Source.file(file);
+        } catch (NoSuchFileException e){
+            throw new ProgramException("Error reading " + file + ":no such file.");
+        } catch (IOException e){
+            throw new ProgramException("Error reading " + file + ":" + e.getMessage() + ".");
+        }
+    }
+}
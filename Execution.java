@@ -0,0 +1,77 @@
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * one run of a CompiledProgram under its RunLimits. it is run straight through by run, or a time slice at a time
+ * by a Scheduler, and can be cancelled from any thread, which stops it at its next safepoint
+ */
+public final class Execution
+{
+    private final VirtualMachine machine;
+    private final RunLimits limits;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    /**whether the first slice has set the run up*/
+    private boolean started = false;
+
+    Execution(Bytecode bytecode, RAM memory, OutputSink sink, RunLimits limits){
+        this.machine = new VirtualMachine(bytecode, memory, sink);
+        this.limits = limits;
+    }
+
+    /**
+     * runs the program to the end on this thread
+     * @throws ProgramException if it goes wrong, runs out of steps or time, or is cancelled
+     */
+    public void run(){
+        try {
+            resume(0);
+            completion.complete(null);
+        } catch (RuntimeException | Error e){
+            completion.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * runs the program for about nanos nanoseconds, until its next safepoint after that
+     * @param nanos how long to run for, or 0 to run to the end
+     * @return whether the run is over, whether it finished or went wrong (even with an Error)
+     */
+    boolean slice(long nanos){
+        try {
+            if (!resume(nanos))
+                return false;
+            completion.complete(null);
+        } catch (RuntimeException | Error e){
+            completion.completeExceptionally(e);
+        }
+
+        return true;
+    }
+
+    /**
+     * @return whether the program has finished
+     */
+    private boolean resume(long nanos){
+        if (!started){
+            started = true;
+            machine.limit(limits.maxSteps, limits.timeout);
+            machine.start();
+        }
+
+        return machine.resume(nanos);
+    }
+
+    /**
+     * stops the run at its next safepoint, so it fails with "cancelled"
+     */
+    public void cancel(){
+        machine.cancel();
+    }
+
+    /**
+     * @return when the run is over: done once it finishes, or with the ProgramException it failed with
+     */
+    public CompletableFuture<Void> completion(){
+        return completion;
+    }
+}
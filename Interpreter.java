@@ -0,0 +1,526 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * runs a program by walking the tree made by the Parser, keeping every variable in the RAM
+ */
+public class Interpreter
+{
+    /**what running a statement did to the flow of the program*/
+    private static final int NORMAL = 0, BREAK = 1, GIVE = 2;
+
+    private Node.Program program;
+    private RAM memory;
+    /**where the program outputs to*/
+    private PrintStream out;
+
+    /**the line being run, for error messages*/
+    private int lineNum = 0;
+    /**how many commands deep we are*/
+    private int methodLevel = 0;
+    /**the RAM handle of each universal variable*/
+    private int[] globals;
+    /**the handles of the variables of every running command, each frame straight after its caller's*/
+    private int[] slots = new int[256];
+    /**where the frame of the running command starts, and where the next one will*/
+    private int fp = 0, frameTop = 0;
+    /**the command being run*/
+    private Node.Command running;
+    /**the value of the last give: integers, chars and booleans (as 1 or 0) in returnInteger, doubles and words in the others*/
+    private int returnInteger;
+    private double returnDouble;
+    private String returnWord;
+    /**what the run may do, and the safepoints that check it, made as it starts*/
+    private RunLimits limits = RunLimits.NONE;
+    private Safepoints safepoints;
+
+    Interpreter(Node.Program program){
+        this(program, new RAM());
+    }
+
+    /**
+     * @param memory where the variables are kept, made with the memory limit wanted
+     */
+    Interpreter(Node.Program program, RAM memory){
+        this(program, memory, System.out);
+    }
+
+    /**
+     * @param out where the program outputs to
+     */
+    Interpreter(Node.Program program, RAM memory, PrintStream out){
+        this.program = program;
+        this.memory = memory;
+        this.out = out;
+    }
+
+    /**
+     * @param limits how many safepoints (command starts and times round a loop) and how long the run may take
+     */
+    void limit(RunLimits limits){
+        this.limits = limits;
+    }
+
+    /**
+     * sets up the universal variables and runs start
+     */
+    void run(){
+        safepoints = new Safepoints(limits);
+        globals = new int[program.globals.size()];
+        for (Node.Declare declare: program.globals)
+            globals[declare.symbol.slot] = allocate(declare.symbol.type);
+
+        for (Node.Declare declare: program.globals)
+            execute(declare);
+
+        call(new Node.Call(program.commands.get("start"), program.line));
+    }
+
+    /**
+     * passes the safepoint before the condition of loop
+     * @return true, so it can go before the condition
+     */
+    private boolean safepoint(Node.Statement loop){
+        lineNum = loop.line;
+        safepoints.poll(lineNum);
+        return true;
+    }
+
+    private void exception(String string){
+        throw new ProgramException(lineNum, string);
+    }
+
+    private void expected(String given, String string){
+        exception("\"" + given + "\" given \"" + string + "\" expected");
+    }
+
+    /**
+     * @return the RAM handle of symbol, from the universal table or the frame of the running command
+     */
+    private int handle(Node.Symbol symbol){
+        return symbol.global ? globals[symbol.slot] : slots[fp + symbol.slot];
+    }
+
+    private int allocate(String type){
+        int handle = memory.allocate(type);
+        if (handle == -1)
+            exception("out of memory");
+        return handle;
+    }
+
+    /*
+     * statements
+     */
+
+    /**
+     * runs a statement
+     * @return NORMAL, or BREAK/GIVE if the statement ended a loop or command early
+     */
+    private int execute(Node.Statement statement){
+        lineNum = statement.line;
+
+        if (statement instanceof Node.Block){
+            Node.Block block = (Node.Block) statement;
+            int result = NORMAL;
+
+            for (Node.Statement inner: block.statements){
+                result = execute(inner);
+                if (result != NORMAL)
+                    break;
+            }
+
+            return result;
+        }
+        else if (statement instanceof Node.Declare){
+            Node.Declare declare = (Node.Declare) statement;
+            store(declare.symbol, handle(declare.symbol), declare.value);
+        }
+        else if (statement instanceof Node.Assign){
+            Node.Assign assign = (Node.Assign) statement;
+            store(assign.target.symbol, handle(assign.target.symbol), assign.value);
+        }
+        else if (statement instanceof Node.Output){
+            Node.Output output = (Node.Output) statement;
+            output(output.value);
+            if (output.newLine)
+                out.println();
+        }
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+
+            if (bool(ifStatement.condition))
+                return execute(ifStatement.then);
+            else if (ifStatement.otherwise != null)
+                return execute(ifStatement.otherwise);
+        }
+        else if (statement instanceof Node.While){
+            Node.While loop = (Node.While) statement;
+
+            while (safepoint(loop) && bool(loop.condition)){
+                int result = execute(loop.body);
+                if (result == BREAK)
+                    break;
+                else if (result == GIVE)
+                    return GIVE;
+            }
+        }
+        else if (statement instanceof Node.DoWhile){
+            Node.DoWhile loop = (Node.DoWhile) statement;
+
+            do {
+                int result = execute(loop.body);
+                if (result == BREAK)
+                    break;
+                else if (result == GIVE)
+                    return GIVE;
+            } while (safepoint(loop) && bool(loop.condition));
+        }
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            int result = NORMAL;
+            execute(loop.init);
+
+            while (safepoint(loop) && bool(loop.condition)){
+                result = execute(loop.body);
+                if (result != NORMAL)
+                    break;
+                execute(loop.update);
+            }
+
+            if (result == GIVE)
+                return GIVE;
+        }
+        else if (statement instanceof Node.Break)
+            return BREAK;
+        else if (statement instanceof Node.Give){
+            Node.Give give = (Node.Give) statement;
+            if (give.value != null)
+                give(give.value);
+            return GIVE;
+        }
+        else if (statement instanceof Node.CallStatement)
+            call(((Node.CallStatement) statement).call);
+        else if (statement instanceof Node.Fail)
+            throw new ProgramException(statement.line, ((Node.Fail) statement).message);
+
+        return NORMAL;
+    }
+
+    private void output(Node.Expression value){
+        switch (value.kind){
+            case Node.INTEGER:
+                out.print(integerValue(value));
+                break;
+            case Node.DOUBLE:
+                out.print(doubleValue(value));
+                break;
+            case Node.CHAR:
+                out.print(character(value));
+                break;
+            case Node.BOOLEAN:
+                out.print(bool(value));
+                break;
+            default:
+                out.print(word(value));
+        }
+    }
+
+    /**
+     * works out what the running command gives, as the type it gives
+     */
+    private void give(Node.Expression value){
+        switch (running.returnKind){
+            case Node.INTEGER:
+                returnInteger = integer(value);
+                break;
+            case Node.DOUBLE:
+                returnDouble = number(value);
+                break;
+            case Node.CHAR:
+                returnInteger = character(value);
+                break;
+            case Node.BOOLEAN:
+                returnInteger = bool(value) ? 1 : 0;
+                break;
+            default:
+                returnWord = word(value);
+        }
+    }
+
+    /**
+     * works out value and writes it into the RAM at handle, the handle of symbol, converting between integer and double
+     */
+    private void store(Node.Symbol symbol, int handle, Node.Expression value){
+        int caseNum;
+
+        switch (symbol.kind){
+            case Node.INTEGER:
+                caseNum = memory.writeInteger(handle, integer(value));
+                break;
+            case Node.DOUBLE:
+                caseNum = memory.writeDouble(handle, number(value));
+                break;
+            case Node.CHAR:
+                caseNum = memory.writeChar(handle, character(value));
+                break;
+            case Node.BOOLEAN:
+                caseNum = memory.writeBoolean(handle, bool(value));
+                break;
+            default:
+                caseNum = memory.write(handle, word(value));
+        }
+
+        if (caseNum == -1)
+            exception("out of memory");
+        else if (caseNum == -2)
+            exception("incorrect input data for " + symbol.name + " for type " + symbol.type);
+    }
+
+    /**
+     * double -> integer, which only works if the double is whole and an integer can hold it
+     */
+    private int toInteger(double value){
+        if (value % 1 != 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            expected(value + "", "integer");
+        return (int) value;
+    }
+
+    /*
+     * expressions. each type has its own path, picked by the type the Parser gave the expression,
+     * so numbers are never boxed on the way. types and operators are switched on by their Node codes
+     */
+
+    /**
+     * @return expression, an integer or a double, as an integer
+     */
+    private int integer(Node.Expression expression){
+        return expression.kind == Node.DOUBLE ? toInteger(doubleValue(expression)) : integerValue(expression);
+    }
+
+    /**
+     * @return expression, an integer or a double, as a double
+     */
+    private double number(Node.Expression expression){
+        return expression.kind == Node.INTEGER ? integerValue(expression) : doubleValue(expression);
+    }
+
+    private int integerValue(Node.Expression expression){
+        if (expression instanceof Node.Literal)
+            return (int) ((Node.Literal) expression).value;
+        else if (expression instanceof Node.Variable)
+            return memory.readInteger(handle(((Node.Variable) expression).symbol));
+        else if (expression instanceof Node.Unary)
+            return -integerValue(((Node.Unary) expression).operand);
+        else if (expression instanceof Node.Call){
+            call((Node.Call) expression);
+            return returnInteger;
+        }
+
+        Node.Binary binary = (Node.Binary) expression;
+        int val1 = integerValue(binary.left);
+        int val2 = integerValue(binary.right);
+        lineNum = binary.line;
+
+        switch (binary.op){
+            case Node.ADD:
+                return val1 + val2;
+            case Node.SUBTRACT:
+                return val1 - val2;
+            case Node.MULTIPLY:
+                return val1 * val2;
+            case Node.REMAINDER:
+                if (val2 == 0)
+                    exception("Don't break math");
+                return val1 % val2;
+            default:
+                if (val2 == 0)
+                    exception("Don't break math");
+                return val1 / val2;
+        }
+    }
+
+    private double doubleValue(Node.Expression expression){
+        if (expression instanceof Node.Literal)
+            return (double) ((Node.Literal) expression).value;
+        else if (expression instanceof Node.Variable)
+            return memory.readDouble(handle(((Node.Variable) expression).symbol));
+        else if (expression instanceof Node.Unary)
+            return -doubleValue(((Node.Unary) expression).operand);
+        else if (expression instanceof Node.Call){
+            call((Node.Call) expression);
+            return returnDouble;
+        }
+
+        // a double sum can still have an integer on one side
+        Node.Binary binary = (Node.Binary) expression;
+        double val1 = number(binary.left);
+        double val2 = number(binary.right);
+        lineNum = binary.line;
+
+        switch (binary.op){
+            case Node.ADD:
+                return val1 + val2;
+            case Node.SUBTRACT:
+                return val1 - val2;
+            case Node.MULTIPLY:
+                return val1 * val2;
+            case Node.REMAINDER:
+                return val1 % val2;
+            default:
+                if (val2 == 0)
+                    exception("Don't break math");
+                return val1 / val2;
+        }
+    }
+
+    private char character(Node.Expression expression){
+        if (expression instanceof Node.Literal)
+            return (char) ((Node.Literal) expression).value;
+        else if (expression instanceof Node.Variable)
+            return memory.readChar(handle(((Node.Variable) expression).symbol));
+
+        call((Node.Call) expression);
+        return (char) returnInteger;
+    }
+
+    private String word(Node.Expression expression){
+        if (expression instanceof Node.Literal)
+            return (String) ((Node.Literal) expression).value;
+        else if (expression instanceof Node.Variable)
+            return (String) memory.read(handle(((Node.Variable) expression).symbol));
+
+        call((Node.Call) expression);
+        return returnWord;
+    }
+
+    private boolean bool(Node.Expression expression){
+        if (expression instanceof Node.Literal)
+            return (boolean) ((Node.Literal) expression).value;
+        else if (expression instanceof Node.Variable)
+            return memory.readBoolean(handle(((Node.Variable) expression).symbol));
+        else if (expression instanceof Node.Unary)
+            return !bool(((Node.Unary) expression).operand);
+        else if (expression instanceof Node.Call){
+            call((Node.Call) expression);
+            return returnInteger != 0;
+        }
+
+        Node.Binary binary = (Node.Binary) expression;
+        // the right side is only worked out if the left does not decide
+        switch (binary.op){
+            case Node.OR:
+                return bool(binary.left) || bool(binary.right);
+            case Node.AND:
+                return bool(binary.left) && bool(binary.right);
+        }
+
+        // relations, on whatever type the two sides are. the Parser only lets words, booleans and chars use = and !=
+        int kind = binary.left.kind;
+        int compared;
+
+        if (kind == Node.WORD){
+            boolean equal = word(binary.left).equals(word(binary.right));
+            lineNum = binary.line;
+            return (binary.op == Node.EQUAL) == equal;
+        }
+        else if (kind == Node.BOOLEAN){
+            boolean equal = bool(binary.left) == bool(binary.right);
+            lineNum = binary.line;
+            return (binary.op == Node.EQUAL) == equal;
+        }
+        else if (kind == Node.CHAR){
+            boolean equal = character(binary.left) == character(binary.right);
+            lineNum = binary.line;
+            return (binary.op == Node.EQUAL) == equal;
+        }
+        else if (kind == Node.INTEGER && binary.right.kind == Node.INTEGER){
+            compared = Integer.compare(integerValue(binary.left), integerValue(binary.right));
+        }
+        else {
+            double val1 = number(binary.left);
+            double val2 = number(binary.right);
+            lineNum = binary.line;
+
+            // NaN is neither bigger, smaller nor equal, so it cannot go through compare
+            switch (binary.op){
+                case Node.EQUAL:
+                    return val1 == val2;
+                case Node.NOT_EQUAL:
+                    return val1 != val2;
+                case Node.LESS:
+                    return val1 < val2;
+                case Node.GREATER:
+                    return val1 > val2;
+                case Node.LESS_EQUAL:
+                    return val1 <= val2;
+                default:
+                    return val1 >= val2;
+            }
+        }
+        lineNum = binary.line;
+
+        switch (binary.op){
+            case Node.EQUAL:
+                return compared == 0;
+            case Node.NOT_EQUAL:
+                return compared != 0;
+            case Node.LESS:
+                return compared < 0;
+            case Node.GREATER:
+                return compared > 0;
+            case Node.LESS_EQUAL:
+                return compared <= 0;
+            default:
+                return compared >= 0;
+        }
+    }
+
+    /*
+     * commands
+     */
+
+    /**
+     * runs the command called, with its parameters set to the arguments
+     * leaving what it gives in returnInteger, returnDouble or returnWord
+     */
+    private void call(Node.Call call){
+        Node.Command command = call.command, caller = running;
+        int callLine = lineNum, callerFp = fp;
+
+        // every variable of the command gets its RAM now, in a frame after the caller's, and it is all given back at once by the mark
+        int mark = memory.mark(), base = frameTop;
+        frameTop += command.frame.size();
+        if (frameTop > slots.length)
+            slots = Arrays.copyOf(slots, frameTop * 2);
+
+        for (int i = 0; i < command.frame.size(); i++)
+            slots[base + i] = allocate(command.frame.get(i).type);
+
+        // the arguments are worked out in the caller's frame, with the new one already out of their way
+        for (int i = 0; i < call.arguments.size(); i++)
+            store(command.params.get(i), slots[base + i], call.arguments.get(i));
+
+        if (methodLevel == 500)
+            exception("just stop.");
+
+        fp = base;
+        methodLevel++;
+        running = command;
+        lineNum = command.line;
+        safepoints.poll(lineNum);
+
+        int result = execute(command.body);
+
+        if (result != GIVE && command.returnKind != Node.NOTHING){
+            lineNum = command.line;
+            exception("no return statement");
+        }
+
+        memory.release(mark);
+        frameTop = base;
+        fp = callerFp;
+        methodLevel--;
+        running = caller;
+        lineNum = callLine;
+    }
+}
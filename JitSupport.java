@@ -0,0 +1,99 @@
+import java.util.function.ObjIntConsumer;
+
+/**
+ * JvmSupport for the commands the Tiers compile while a program runs: errors are thrown as ProgramExceptions
+ * instead of ending the JVM, and everything that has to match the closure tier (how deep the run is, the RAM its
+ * variables take and its safepoints) goes through the ClosureCompiler.Run each compiled command is given
+ */
+final class JitSupport
+{
+    /**what a compiled command does with an error*/
+    private static final ObjIntConsumer<String> THROW = JitSupport::error;
+
+    private JitSupport(){}
+
+    /**
+     * @param line the (zero based) line of the error
+     */
+    static void error(String string, int line){
+        throw new ProgramException(line, string);
+    }
+
+    /*
+     * the checks are JvmSupport's, failing through error
+     */
+
+    static int toInteger(double value, int line){
+        return JvmSupport.toInteger(value, line, THROW);
+    }
+
+    static int divide(int a, int b, int line){
+        return JvmSupport.divide(a, b, line, THROW);
+    }
+
+    static int remainder(int a, int b, int line){
+        return JvmSupport.remainder(a, b, line, THROW);
+    }
+
+    static double divide(double a, double b, int line){
+        return JvmSupport.divide(a, b, line, THROW);
+    }
+
+    static int integer(int value, String name, int line){
+        return JvmSupport.integer(value, name, line, THROW);
+    }
+
+    static int character(int value, String name, int line){
+        return JvmSupport.character(value, name, line, THROW);
+    }
+
+    static String word(String value, String name, int line){
+        return JvmSupport.word(value, name, line, THROW);
+    }
+
+    /*
+     * calls, which take the same RAM in the same order as the closure tier so it runs out at the same place
+     */
+
+    /**
+     * called before a command's arguments are worked out
+     * @return the mark to give the callee's variables back to
+     */
+    static int mark(ClosureCompiler.Run run){
+        return run.memory.mark();
+    }
+
+    /**
+     * gives the callee a variable of type, in the RAM
+     */
+    static void allocate(ClosureCompiler.Run run, String type, int line){
+        if (run.memory.allocate(type) == -1)
+            error("out of memory", line);
+    }
+
+    /**
+     * called just before every command is called, after its arguments
+     * @param commandLine the line of the command, which is its safepoint
+     */
+    static void enter(ClosureCompiler.Run run, int line, int commandLine){
+        if (run.depth == 500)
+            error("just stop.", line);
+        run.depth++;
+        run.safepoints.poll(commandLine);
+    }
+
+    /**
+     * called as every command has given back
+     */
+    static void leave(int mark, ClosureCompiler.Run run){
+        run.memory.release(mark);
+        run.depth--;
+    }
+
+    /**
+     * passes the safepoint before a loop's condition
+     */
+    static void safepoint(ClosureCompiler.Run run, int line){
+        run.safepoints.poll(line);
+    }
+}
@@ -0,0 +1,703 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * compiles the tree made by the Parser into a JVM class: one static method per command,
+ * the universal variables as static fields and every primitive type as a JVM primitive
+ */
+public class JvmCompiler
+{
+    private static final String SUPPORT = "JvmSupport", OUT = "Ljava/io/PrintStream;";
+    /**the method of a class made by compileHot that the closure tier calls it through, and what it takes*/
+    static final String BRIDGE = "$bridge", RUN = "ClosureCompiler$Run";
+
+    private String className;
+    /**the class the compiled code calls for errors and keeping count of how deep it is*/
+    private String support;
+    private ClassWriter writer;
+    private ClassWriter.Code code;
+    /**whether the commands are for the Tiers, and so take the Run first to keep its depth, RAM and safepoints*/
+    private boolean hot;
+
+    /**the JVM local of each slot of the current command*/
+    private int[] locals;
+    private Node.Command currentCommand;
+    /**where each break of the loops being compiled goes*/
+    private LinkedList<ClassWriter.Label> breaks = new LinkedList<>();
+
+    JvmCompiler(String className){
+        this(className, SUPPORT);
+    }
+
+    /**
+     * @param support the class with the same static methods as JvmSupport for the compiled code to call
+     */
+    JvmCompiler(String className, String support){
+        this.className = className;
+        this.support = support;
+    }
+
+    /**
+     * @return the class file of the program, with a main that sets up the universal variables and calls start
+     */
+    byte[] compile(Node.Program program){
+        writer = new ClassWriter(className, "java/lang/Object");
+
+        for (Node.Declare global: program.globals)
+            writer.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, global.symbol.name, descriptor(global.symbol.type));
+
+        for (Node.Command command: program.commands.values())
+            command(command);
+
+        locals = new int[0];
+        code = writer.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "main", "([Ljava/lang/String;)V", 1);
+
+        for (Node.Declare global: program.globals)
+            statement(global);
+
+        code.pushInt(program.line);
+        code.invoke(ClassWriter.INVOKESTATIC, support, "enter", "(I)V");
+        code.invoke(ClassWriter.INVOKESTATIC, className, "start", "()V");
+        code.exit(ClassWriter.RETURN, 0);
+        code.end();
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * compiles commands, which must not use the universal variables or output anything, into a class of their own
+     * for the Tiers of the closure tier. each of them takes the Run first, so a call takes the same RAM, goes as deep
+     * and passes the same safepoints as in closures. entry also gets a BRIDGE, which reads its arguments from the RAM
+     * handles it is given and leaves what entry gives in the Run
+     */
+    byte[] compileHot(Node.Command entry, Collection<Node.Command> commands){
+        writer = new ClassWriter(className, "java/lang/Object");
+        hot = true;
+
+        for (Node.Command command: commands)
+            command(command);
+
+        locals = new int[0];
+        code = writer.addMethod(ClassWriter.ACC_STATIC, BRIDGE, "(L" + RUN + ";[I)V", 2);
+
+        // the Run is pushed first, to store what entry gives in, then again for entry itself
+        if (!entry.returnType.equals("nothing"))
+            code.local(ClassWriter.ALOAD, 0, 1);
+        code.local(ClassWriter.ALOAD, 0, 1);
+
+        for (int i = 0; i < entry.params.size(); i++){
+            code.local(ClassWriter.ALOAD, 0, 1);
+            code.field(ClassWriter.GETFIELD, RUN, "memory", "LRAM;", 1);
+            code.local(ClassWriter.ALOAD, 1, 1);
+            code.pushInt(i);
+            code.op(ClassWriter.IALOAD, -1);
+            read(entry.params.get(i).type);
+        }
+
+        code.invoke(ClassWriter.INVOKESTATIC, className, entry.name, signature(entry));
+
+        switch (entry.returnType){
+            case "nothing":
+                break;
+            case "double":
+                code.field(ClassWriter.PUTFIELD, RUN, "returnDouble", "D", 2);
+                break;
+            case "word":
+                code.field(ClassWriter.PUTFIELD, RUN, "returnWord", "Ljava/lang/String;", 1);
+                break;
+            default:
+                code.field(ClassWriter.PUTFIELD, RUN, "returnInteger", "I", 1);
+        }
+
+        code.exit(ClassWriter.RETURN, 0);
+        code.end();
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * reads a value of type from the RAM, with the RAM and the handle on the stack
+     */
+    private void read(String type){
+        switch (type){
+            case "integer":
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "RAM", "readInteger", "(I)I");
+                break;
+            case "double":
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "RAM", "readDouble", "(I)D");
+                break;
+            case "char":
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "RAM", "readChar", "(I)C");
+                break;
+            case "boolean":
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "RAM", "readBoolean", "(I)Z");
+                break;
+            default:
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "RAM", "read", "(I)Ljava/lang/Object;");
+                code.type(ClassWriter.CHECKCAST, "java/lang/String");
+        }
+    }
+
+    /**
+     * writes a runnable jar holding the compiled class and JvmSupport
+     */
+    static void writeJar(String fileName, String className, byte[] classFile) throws IOException {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, className);
+
+        try (JarOutputStream jar = new JarOutputStream(new FileOutputStream(fileName), manifest);
+             InputStream support = JvmCompiler.class.getResourceAsStream("/" + SUPPORT + ".class")) {
+            if (support == null)
+                throw new IOException(SUPPORT + ".class not found");
+
+            jar.putNextEntry(new JarEntry(className + ".class"));
+            jar.write(classFile);
+            jar.closeEntry();
+
+            jar.putNextEntry(new JarEntry(SUPPORT + ".class"));
+            support.transferTo(jar);
+            jar.closeEntry();
+        }
+    }
+
+    /**
+     * @return the name of the class for the file called fileName
+     */
+    static String className(String fileName){
+        String name = new File(fileName).getName();
+        if (name.contains("."))
+            name = name.substring(0, name.lastIndexOf('.'));
+
+        StringBuilder st = new StringBuilder();
+        for (char c: name.toCharArray())
+            st.append(Character.isJavaIdentifierPart(c) ? c : '_');
+
+        if (st.length() == 0 || !Character.isJavaIdentifierStart(st.charAt(0)))
+            st.insert(0, '_');
+        return st.toString();
+    }
+
+    /*
+     * types
+     */
+
+    static String descriptor(String type){
+        switch (type){
+            case "integer":
+                return "I";
+            case "double":
+                return "D";
+            case "char":
+                return "C";
+            case "boolean":
+                return "Z";
+            case "word":
+                return "Ljava/lang/String;";
+            default:
+                return "V";
+        }
+    }
+
+    static String descriptor(Node.Command command){
+        StringBuilder st = new StringBuilder("(");
+        for (Node.Symbol param: command.params)
+            st.append(descriptor(param.type));
+        return st.append(")").append(descriptor(command.returnType)).toString();
+    }
+
+    /**
+     * @return the descriptor of the method for command, which takes the Run first if it is hot
+     */
+    private String signature(Node.Command command){
+        return hot ? "(L" + RUN + ";" + descriptor(command).substring(1) : descriptor(command);
+    }
+
+    /**
+     * @return how many JVM slots a value of type takes
+     */
+    private int size(String type){
+        return type.equals("double") ? 2 : type.equals("nothing") ? 0 : 1;
+    }
+
+    /*
+     * commands and statements
+     */
+
+    private void command(Node.Command command){
+        currentCommand = command;
+        locals = new int[command.frame.size()];
+        // a hot command has the Run in local 0
+        int nextLocal = hot ? 1 : 0, paramLocals = nextLocal;
+
+        for (int i = 0; i < locals.length; i++){
+            locals[i] = nextLocal;
+            nextLocal += size(command.frame.get(i).type);
+            if (i < command.params.size())
+                paramLocals = nextLocal;
+        }
+
+        code = writer.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, command.name, signature(command), paramLocals);
+        statement(command.body);
+
+        if (command.returnType.equals("nothing"))
+            giveBack();
+        else {
+            code.pushString("no return statement");
+            code.pushInt(command.line);
+            code.invoke(ClassWriter.INVOKESTATIC, support, "error", "(Ljava/lang/String;I)V");
+            pushDefault(command.returnType);
+            giveBack();
+        }
+
+        code.end();
+    }
+
+    /**
+     * leaves the command, giving the top of the stack if the command gives anything
+     */
+    private void giveBack(){
+        // a hot command's caller leaves for it, as it has the mark to give the RAM back to
+        if (!hot)
+            code.invoke(ClassWriter.INVOKESTATIC, support, "leave", "()V");
+
+        switch (currentCommand.returnType){
+            case "nothing":
+                code.exit(ClassWriter.RETURN, 0);
+                break;
+            case "double":
+                code.exit(ClassWriter.DRETURN, -2);
+                break;
+            case "word":
+                code.exit(ClassWriter.ARETURN, -1);
+                break;
+            default:
+                code.exit(ClassWriter.IRETURN, -1);
+        }
+    }
+
+    private void pushDefault(String type){
+        if (type.equals("double"))
+            code.pushDouble(0);
+        else if (type.equals("word"))
+            code.pushString("");
+        else
+            code.pushInt(0);
+    }
+
+    private void statement(Node.Statement statement){
+        if (statement instanceof Node.Block){
+            for (Node.Statement inner: ((Node.Block) statement).statements)
+                statement(inner);
+        }
+        else if (statement instanceof Node.Declare){
+            Node.Declare declare = (Node.Declare) statement;
+            expression(declare.value, declare.symbol.type);
+            check(declare.symbol, declare.line);
+            store(declare.symbol);
+        }
+        else if (statement instanceof Node.Assign){
+            Node.Assign assign = (Node.Assign) statement;
+            expression(assign.value, assign.target.type);
+            check(assign.target.symbol, assign.line);
+            store(assign.target.symbol);
+        }
+        else if (statement instanceof Node.Output){
+            Node.Output output = (Node.Output) statement;
+            code.field(ClassWriter.GETSTATIC, "java/lang/System", "out", OUT, 1);
+            expression(output.value);
+            code.invoke(ClassWriter.INVOKEVIRTUAL, "java/io/PrintStream", "print", "(" + descriptor(output.value.type) + ")V");
+
+            if (output.newLine){
+                code.field(ClassWriter.GETSTATIC, "java/lang/System", "out", OUT, 1);
+                code.invoke(ClassWriter.INVOKEVIRTUAL, "java/io/PrintStream", "println", "()V");
+            }
+        }
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+            ClassWriter.Label otherwise = code.newLabel();
+
+            branch(ifStatement.condition, false, otherwise);
+            statement(ifStatement.then);
+
+            if (ifStatement.otherwise == null)
+                code.mark(otherwise);
+            else {
+                ClassWriter.Label end = code.newLabel();
+                code.jump(ClassWriter.GOTO, end);
+                code.mark(otherwise);
+                statement(ifStatement.otherwise);
+                code.mark(end);
+            }
+        }
+        else if (statement instanceof Node.While){
+            Node.While loop = (Node.While) statement;
+            ClassWriter.Label start = code.newLabel(), end = code.newLabel();
+
+            code.mark(start);
+            safepoint(loop.line);
+            branch(loop.condition, false, end);
+            loopBody(loop.body, end);
+            code.jump(ClassWriter.GOTO, start);
+            code.mark(end);
+        }
+        else if (statement instanceof Node.DoWhile){
+            Node.DoWhile loop = (Node.DoWhile) statement;
+            ClassWriter.Label start = code.newLabel(), end = code.newLabel();
+
+            code.mark(start);
+            loopBody(loop.body, end);
+            safepoint(loop.line);
+            branch(loop.condition, true, start);
+            code.mark(end);
+        }
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            ClassWriter.Label start = code.newLabel(), end = code.newLabel();
+
+            statement(loop.init);
+            code.mark(start);
+            safepoint(loop.line);
+            branch(loop.condition, false, end);
+            loopBody(loop.body, end);
+            statement(loop.update);
+            code.jump(ClassWriter.GOTO, start);
+            code.mark(end);
+        }
+        else if (statement instanceof Node.Break)
+            code.jump(ClassWriter.GOTO, breaks.peek());
+        else if (statement instanceof Node.Give){
+            Node.Give give = (Node.Give) statement;
+            if (give.value != null)
+                expression(give.value, currentCommand.returnType);
+            giveBack();
+        }
+        else if (statement instanceof Node.Fail){
+            code.pushString(((Node.Fail) statement).message);
+            code.pushInt(statement.line);
+            code.invoke(ClassWriter.INVOKESTATIC, support, "error", "(Ljava/lang/String;I)V");
+        }
+        else if (statement instanceof Node.CallStatement){
+            Node.Call call = ((Node.CallStatement) statement).call;
+            expression(call);
+
+            if (call.type.equals("double"))
+                code.op(ClassWriter.POP2, -2);
+            else if (!call.type.equals("nothing"))
+                code.op(ClassWriter.POP, -1);
+        }
+    }
+
+    private void loopBody(Node.Block body, ClassWriter.Label end){
+        breaks.push(end);
+        statement(body);
+        breaks.pop();
+    }
+
+    /**
+     * passes the safepoint before a loop's condition, in a hot command
+     */
+    private void safepoint(int line){
+        if (!hot)
+            return;
+
+        code.local(ClassWriter.ALOAD, 0, 1);
+        code.pushInt(line);
+        code.invoke(ClassWriter.INVOKESTATIC, support, "safepoint", "(L" + RUN + ";I)V");
+    }
+
+    /**
+     * with the value for symbol on the stack, fails where the RAM could not have held the value and leaves what
+     * the RAM would give back, so every backend stores the same way
+     */
+    private void check(Node.Symbol symbol, int line){
+        String value;
+        switch (symbol.type){
+            case "integer":
+            case "char":
+                value = "I";
+                break;
+            case "word":
+                value = "Ljava/lang/String;";
+                break;
+            default:
+                return;
+        }
+
+        code.pushString(symbol.name);
+        code.pushInt(line);
+        code.invoke(ClassWriter.INVOKESTATIC, support, symbol.type.equals("char") ? "character" : symbol.type,
+                "(" + value + "Ljava/lang/String;I)" + value);
+    }
+
+    private void store(Node.Symbol symbol){
+        if (symbol.global)
+            code.field(ClassWriter.PUTSTATIC, className, symbol.name, descriptor(symbol.type), size(symbol.type));
+        else if (symbol.type.equals("double"))
+            code.local(ClassWriter.DSTORE, locals[symbol.slot], 2);
+        else if (symbol.type.equals("word"))
+            code.local(ClassWriter.ASTORE, locals[symbol.slot], 1);
+        else
+            code.local(ClassWriter.ISTORE, locals[symbol.slot], 1);
+    }
+
+    private void load(Node.Symbol symbol){
+        if (symbol.global)
+            code.field(ClassWriter.GETSTATIC, className, symbol.name, descriptor(symbol.type), size(symbol.type));
+        else if (symbol.type.equals("double"))
+            code.local(ClassWriter.DLOAD, locals[symbol.slot], 2);
+        else if (symbol.type.equals("word"))
+            code.local(ClassWriter.ALOAD, locals[symbol.slot], 1);
+        else
+            code.local(ClassWriter.ILOAD, locals[symbol.slot], 1);
+    }
+
+    /*
+     * expressions
+     */
+
+    /**
+     * compiles expression, converting it to type
+     */
+    private void expression(Node.Expression expression, String type){
+        expression(expression);
+
+        if (expression.type.equals("integer") && type.equals("double"))
+            code.op(ClassWriter.I2D, 1);
+        else if (expression.type.equals("double") && type.equals("integer")){
+            code.pushInt(expression.line);
+            code.invoke(ClassWriter.INVOKESTATIC, support, "toInteger", "(DI)I");
+        }
+    }
+
+    private void expression(Node.Expression expression){
+        if (expression instanceof Node.Literal){
+            Object value = ((Node.Literal) expression).value;
+
+            switch (expression.type){
+                case "integer":
+                    code.pushInt((int) value);
+                    break;
+                case "double":
+                    code.pushDouble((double) value);
+                    break;
+                case "char":
+                    code.pushInt((char) value);
+                    break;
+                case "boolean":
+                    code.pushInt((boolean) value ? 1 : 0);
+                    break;
+                default:
+                    code.pushString((String) value);
+            }
+        }
+        else if (expression instanceof Node.Variable)
+            load(((Node.Variable) expression).symbol);
+        else if (expression instanceof Node.Unary){
+            Node.Unary unary = (Node.Unary) expression;
+            expression(unary.operand);
+
+            if (unary.operator.equals("!")){
+                code.pushInt(1);
+                code.op(ClassWriter.IXOR, -1);
+            }
+            else
+                code.op(unary.type.equals("integer") ? ClassWriter.INEG : ClassWriter.DNEG, 0);
+        }
+        else if (expression instanceof Node.Binary)
+            binary((Node.Binary) expression);
+        else if (hot)
+            hotCall((Node.Call) expression);
+        else {
+            Node.Call call = (Node.Call) expression;
+
+            for (int i = 0; i < call.arguments.size(); i++){
+                Node.Symbol param = call.command.params.get(i);
+                expression(call.arguments.get(i), param.type);
+                check(param, call.line);
+            }
+
+            code.pushInt(call.line);
+            code.invoke(ClassWriter.INVOKESTATIC, support, "enter", "(I)V");
+            code.invoke(ClassWriter.INVOKESTATIC, className, call.command.name, descriptor(call.command));
+        }
+    }
+
+    /**
+     * a call from one hot command to another, in the same order as the closure tier: the callee's variables get
+     * their RAM, the arguments are worked out, then the depth and the safepoint are checked. the mark stays under
+     * the call on the stack until the callee gives back
+     */
+    private void hotCall(Node.Call call){
+        String run = "L" + RUN + ";";
+        Node.Command callee = call.command;
+
+        code.local(ClassWriter.ALOAD, 0, 1);
+        code.invoke(ClassWriter.INVOKESTATIC, support, "mark", "(" + run + ")I");
+
+        for (Node.Symbol symbol: callee.frame){
+            code.local(ClassWriter.ALOAD, 0, 1);
+            code.pushString(symbol.type);
+            code.pushInt(call.line);
+            code.invoke(ClassWriter.INVOKESTATIC, support, "allocate", "(" + run + "Ljava/lang/String;I)V");
+        }
+
+        code.local(ClassWriter.ALOAD, 0, 1);
+        for (int i = 0; i < call.arguments.size(); i++){
+            Node.Symbol param = callee.params.get(i);
+            expression(call.arguments.get(i), param.type);
+            check(param, call.line);
+        }
+
+        code.local(ClassWriter.ALOAD, 0, 1);
+        code.pushInt(call.line);
+        code.pushInt(callee.line);
+        code.invoke(ClassWriter.INVOKESTATIC, support, "enter", "(" + run + "II)V");
+        code.invoke(ClassWriter.INVOKESTATIC, className, callee.name, signature(callee));
+
+        // what the callee gave goes back above the mark
+        if (callee.returnType.equals("double")){
+            code.op(ClassWriter.DUP2_X1, 2);
+            code.op(ClassWriter.POP2, -2);
+        }
+        else if (!callee.returnType.equals("nothing"))
+            code.op(ClassWriter.SWAP, 0);
+
+        code.local(ClassWriter.ALOAD, 0, 1);
+        code.invoke(ClassWriter.INVOKESTATIC, support, "leave", "(I" + run + ")V");
+    }
+
+    private void binary(Node.Binary binary){
+        String operator = binary.operator;
+        String left = binary.left.type, right = binary.right.type;
+
+        if (binary.type.equals("boolean")){
+            ClassWriter.Label isTrue = code.newLabel(), end = code.newLabel();
+
+            branch(binary, true, isTrue);
+            code.pushInt(0);
+            code.jump(ClassWriter.GOTO, end);
+            code.mark(isTrue);
+            code.pushInt(1);
+            code.mark(end);
+            return;
+        }
+
+        boolean integers = left.equals("integer") && right.equals("integer");
+        String operandType = integers ? left : "double";
+
+        expression(binary.left, operandType);
+        expression(binary.right, operandType);
+
+        switch (operator){
+            case "+":
+                code.op(integers ? ClassWriter.IADD : ClassWriter.DADD, integers ? -1 : -2);
+                return;
+            case "-":
+                code.op(integers ? ClassWriter.ISUB : ClassWriter.DSUB, integers ? -1 : -2);
+                return;
+            case "*":
+                code.op(integers ? ClassWriter.IMUL : ClassWriter.DMUL, integers ? -1 : -2);
+                return;
+            case "/":
+                code.pushInt(binary.line);
+                code.invoke(ClassWriter.INVOKESTATIC, support, "divide", integers ? "(III)I" : "(DDI)D");
+                return;
+            default:
+                if (integers){
+                    code.pushInt(binary.line);
+                    code.invoke(ClassWriter.INVOKESTATIC, support, "remainder", "(III)I");
+                }
+                else
+                    code.op(ClassWriter.DREM, -2);
+        }
+    }
+
+    /**
+     * jumps to target if condition is when, without making a boolean first. & and | skip their right side
+     * once the left decides, and comparisons jump straight on their result
+     */
+    private void branch(Node.Expression condition, boolean when, ClassWriter.Label target){
+        if (condition instanceof Node.Unary){
+            branch(((Node.Unary) condition).operand, !when, target);
+            return;
+        }
+        else if (!(condition instanceof Node.Binary)){
+            expression(condition);
+            code.jump(when ? ClassWriter.IFNE : ClassWriter.IFEQ, target);
+            return;
+        }
+
+        Node.Binary binary = (Node.Binary) condition;
+        String operator = binary.operator;
+        String left = binary.left.type, right = binary.right.type;
+
+        if (operator.equals("&") || operator.equals("|")){
+            // a false left side decides &, and a true one decides |
+            if (operator.equals("&") != when){
+                branch(binary.left, when, target);
+                branch(binary.right, when, target);
+            }
+            else {
+                ClassWriter.Label decided = code.newLabel();
+                branch(binary.left, !when, decided);
+                branch(binary.right, when, target);
+                code.mark(decided);
+            }
+            return;
+        }
+
+        boolean numeric = left.equals("integer") || left.equals("double");
+        boolean integers = !numeric || left.equals("integer") && right.equals("integer");
+        String operandType = !numeric || integers ? left : "double";
+
+        expression(binary.left, operandType);
+        expression(binary.right, operandType);
+
+        if (left.equals("word")){
+            code.invoke(ClassWriter.INVOKEVIRTUAL, "java/lang/String", "equals", "(Ljava/lang/Object;)Z");
+            code.jump(when == operator.equals("=") ? ClassWriter.IFNE : ClassWriter.IFEQ, target);
+            return;
+        }
+
+        // the JVM comparisons come in pairs, each the opposite of the other
+        int compare = when ? compare(operator) : compare(operator) ^ 1;
+
+        if (integers)
+            code.jump(ClassWriter.IF_ICMPEQ + compare, target);
+        else {
+            // NaN makes < and =< false through DCMPG, and > and => false through DCMPL, so their opposites are true
+            boolean greater = operator.equals("<") || operator.equals("=<");
+            code.op(greater ? ClassWriter.DCMPG : ClassWriter.DCMPL, -3);
+            code.jump(ClassWriter.IFEQ + compare, target);
+        }
+    }
+
+    /**
+     * @return the offset of the JVM comparison for operator from IFEQ/IF_ICMPEQ
+     */
+    private int compare(String operator){
+        switch (operator){
+            case "=":
+                return 0;
+            case "!=":
+                return 1;
+            case "<":
+                return 2;
+            case "=>":
+                return 3;
+            case ">":
+                return 4;
+            default:
+                return 5;
+        }
+    }
+}
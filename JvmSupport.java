@@ -0,0 +1,131 @@
+import java.util.function.ObjIntConsumer;
+
+/**
+ * the few things classes made by the JvmCompiler cannot do in a line or two of bytecode.
+ * it is copied into every jar next to the compiled program. each check is written once, taking what to do with an
+ * error, so JitSupport shares them with only a different failure
+ */
+public final class JvmSupport
+{
+    /**how many commands deep the program is*/
+    public static int methodLevel = 0;
+    /**what a compiled program does with an error: print it and end the JVM*/
+    private static final ObjIntConsumer<String> EXIT = JvmSupport::error;
+
+    private JvmSupport(){}
+
+    /**
+     * @param line the (zero based) line of the error
+     */
+    public static void error(String string, int line){
+        System.out.print("\n\nError at line " + (line + 1) + ":" + string + ".");
+        System.exit(0);
+    }
+
+    public static int toInteger(double value, int line){
+        return toInteger(value, line, EXIT);
+    }
+
+    public static int divide(int a, int b, int line){
+        return divide(a, b, line, EXIT);
+    }
+
+    public static int remainder(int a, int b, int line){
+        return remainder(a, b, line, EXIT);
+    }
+
+    public static double divide(double a, double b, int line){
+        return divide(a, b, line, EXIT);
+    }
+
+    public static int integer(int value, String name, int line){
+        return integer(value, name, line, EXIT);
+    }
+
+    public static int character(int value, String name, int line){
+        return character(value, name, line, EXIT);
+    }
+
+    public static String word(String value, String name, int line){
+        return word(value, name, line, EXIT);
+    }
+
+    /**
+     * called just before every command is called
+     */
+    public static void enter(int line){
+        if (methodLevel == 500)
+            error("just stop.", line);
+        methodLevel++;
+    }
+
+    /**
+     * called as every command gives back
+     */
+    public static void leave(){
+        methodLevel--;
+    }
+
+    /*
+     * the checks, each given fail to call with the message and line of an error
+     */
+
+    /**
+     * double -> integer, which only works if the double is whole and an integer can hold it
+     */
+    static int toInteger(double value, int line, ObjIntConsumer<String> fail){
+        if (value % 1 != 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            fail.accept("\"" + value + "\" given \"integer\" expected", line);
+        return (int) value;
+    }
+
+    static int divide(int a, int b, int line, ObjIntConsumer<String> fail){
+        if (b == 0)
+            fail.accept("Don't break math", line);
+        return a / b;
+    }
+
+    static int remainder(int a, int b, int line, ObjIntConsumer<String> fail){
+        if (b == 0)
+            fail.accept("Don't break math", line);
+        return a % b;
+    }
+
+    static double divide(double a, double b, int line, ObjIntConsumer<String> fail){
+        if (b == 0)
+            fail.accept("Don't break math", line);
+        return a / b;
+    }
+
+    /*
+     * what the RAM would say to a store, as the variables of compiled code are fields and JVM locals
+     */
+
+    /**
+     * @return value, if the RAM can hold it as an integer
+     */
+    static int integer(int value, String name, int line, ObjIntConsumer<String> fail){
+        if (value == Integer.MIN_VALUE)
+            fail.accept("incorrect input data for " + name + " for type integer", line);
+        return value;
+    }
+
+    /**
+     * @return value, if the RAM can hold it as a char
+     */
+    static int character(int value, String name, int line, ObjIntConsumer<String> fail){
+        if (value >= 256)
+            fail.accept("incorrect input data for " + name + " for type char", line);
+        return value;
+    }
+
+    /**
+     * @return value as the RAM would give it back, which keeps an empty word as a NUL char
+     */
+    static String word(String value, String name, int line, ObjIntConsumer<String> fail){
+        for (int i = 0; i < value.length(); i++)
+            if (value.charAt(i) >= 256)
+                fail.accept("incorrect input data for " + name + " for type word", line);
+        return value.isEmpty() ? String.valueOf((char) 0) : value;
+    }
+}
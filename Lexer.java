@@ -0,0 +1,394 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * turns the code into tokens in one pass before the Parser starts, reading it from its Source a line at a time
+ * into the same array. each token is found by walking a table of
+ * states (a DFA) one character at a time, rather than trying one kind of token after another. every name, symbol,
+ * number and word is interned, so a token is just its kind, an id, and the line and column it starts at.
+ * every bracket is paired with the one closing it on the way, so skipping a block is one jump
+ */
+public class Lexer
+{
+    /**the kinds of token*/
+    static final int NAME = 0, NUMBER = 1, WORD = 2, CHARACTER = 3, SYMBOL = 4, END = 5;
+
+    /**the ids of the symbols and keywords, which are interned first in this order*/
+    static final int OPEN = 0, CLOSE = 1, LEFT = 2, RIGHT = 3, COMMA = 4, SEMICOLON = 5;
+    static final int PLUS = 6, MINUS = 7, TIMES = 8, DIVIDE = 9, REMAINDER = 10;
+    static final int EQUALS = 11, NOT_EQUALS = 12, LESS = 13, GREATER = 14, AT_MOST = 15, AT_LEAST = 16, LESS_EQUALS = 17, GREATER_EQUALS = 18;
+    static final int NOT = 19, AND = 20, OR = 21;
+    static final int PROGRAM = 22, COMMAND = 23, GIVES = 24, NOTHING = 25, TRUE = 26, FALSE = 27;
+    static final int OUTPUT = 28, OUTPUT_NL = 29, IF = 30, ELSE = 31, WHILE = 32, DO = 33, FOR = 34, BREAK = 35, GIVE = 36;
+    /**the primitive types, kept together*/
+    static final int INTEGER = 37, DOUBLE = 38, CHAR = 39, BOOLEAN = 40, WORD_TYPE = 41;
+
+    private static final String[] SPELLINGS = {
+            "[", "]", "(", ")", ",", ";",
+            "+", "-", "*", "/", "%",
+            "=", "!=", "<", ">", "=<", "=>", "<=", ">=",
+            "!", "&", "|",
+            "program", "command", "gives", "nothing", "true", "false",
+            "output", "outputNL", "if", "else", "while", "do", "for", "break", "give",
+            "integer", "double", "char", "boolean", "word"
+    };
+
+    /*
+     * the DFA
+     */
+
+    /**the classes of character the DFA tells apart*/
+    private static final int LETTER = 0, DIGIT = 1, DOT = 2, QUOTE = 3, APOSTROPHE = 4, BACKSLASH = 5, SPACE = 6,
+            SLASH = 7, EQUALS_SIGN = 8, LESS_SIGN = 9, GREATER_SIGN = 10, BANG = 11, SINGLE = 12, OTHER = 13;
+    private static final int CLASS_COUNT = 14;
+
+    /**the states. START is where every token begins, and a state with no way on ends the token*/
+    private static final int START = 0, IN_NAME = 1, IN_INTEGER = 2, IN_DOT = 3, IN_FRACTION = 4, IN_WORD = 5, WORD_END = 6,
+            CHAR_OPEN = 7, IN_CHAR = 8, CHAR_ESCAPE = 9, CHAR_END = 10, IN_SLASH = 11, IN_COMMENT = 12, IN_SINGLE = 13,
+            IN_EQUALS = 14, IN_PAIR = 15, IN_LESS = 16, IN_GREATER = 17, IN_BANG = 18, IN_SPACE = 19;
+    private static final int STATE_COUNT = 20;
+
+    /**what a token ending in each state is: a kind, SKIP for spaces and comments, or FAIL*/
+    private static final int SKIP = -1, FAIL = -2;
+
+    /**the class of each ASCII character, anything else being OTHER*/
+    private static final byte[] CLASSES = new byte[128];
+    /**the state each state goes to on each class of character, or -1 to end the token*/
+    private static final byte[][] NEXT = new byte[STATE_COUNT][CLASS_COUNT];
+    private static final int[] ACCEPTS = new int[STATE_COUNT];
+
+    static {
+        Arrays.fill(CLASSES, (byte) OTHER);
+        for (char c = 'a'; c <= 'z'; c++)
+            CLASSES[c] = CLASSES[Character.toUpperCase(c)] = LETTER;
+        for (char c = '0'; c <= '9'; c++)
+            CLASSES[c] = DIGIT;
+        for (char c: " \t\r\f\u000B".toCharArray())
+            CLASSES[c] = SPACE;
+        for (char c: "[](),;+-*%&|".toCharArray())
+            CLASSES[c] = SINGLE;
+        CLASSES['.'] = DOT;
+        CLASSES['"'] = QUOTE;
+        CLASSES['\''] = APOSTROPHE;
+        CLASSES['\\'] = BACKSLASH;
+        CLASSES['/'] = SLASH;
+        CLASSES['='] = EQUALS_SIGN;
+        CLASSES['<'] = LESS_SIGN;
+        CLASSES['>'] = GREATER_SIGN;
+        CLASSES['!'] = BANG;
+
+        for (byte[] row: NEXT)
+            Arrays.fill(row, (byte) -1);
+
+        on(START, LETTER, IN_NAME);
+        on(START, DIGIT, IN_INTEGER);
+        on(START, DOT, IN_DOT);
+        on(START, QUOTE, IN_WORD);
+        on(START, APOSTROPHE, CHAR_OPEN);
+        on(START, SPACE, IN_SPACE);
+        on(START, SLASH, IN_SLASH);
+        on(START, SINGLE, IN_SINGLE);
+        on(START, EQUALS_SIGN, IN_EQUALS);
+        on(START, LESS_SIGN, IN_LESS);
+        on(START, GREATER_SIGN, IN_GREATER);
+        on(START, BANG, IN_BANG);
+
+        on(IN_NAME, LETTER, IN_NAME);
+        on(IN_NAME, DIGIT, IN_NAME);
+        on(IN_INTEGER, DIGIT, IN_INTEGER);
+        on(IN_INTEGER, DOT, IN_FRACTION);
+        on(IN_DOT, DIGIT, IN_FRACTION);
+        on(IN_FRACTION, DIGIT, IN_FRACTION);
+        on(IN_SPACE, SPACE, IN_SPACE);
+        on(IN_SLASH, SLASH, IN_COMMENT);
+
+        // words run to the next quote, chars are one character (or a \ and one), and comments to the end of the line
+        for (int c = 0; c < CLASS_COUNT; c++){
+            on(IN_WORD, c, c == QUOTE ? WORD_END : IN_WORD);
+            on(CHAR_OPEN, c, c == BACKSLASH ? CHAR_ESCAPE : IN_CHAR);
+            on(CHAR_ESCAPE, c, IN_CHAR);
+            on(IN_COMMENT, c, IN_COMMENT);
+        }
+        on(IN_CHAR, APOSTROPHE, CHAR_END);
+
+        on(IN_EQUALS, LESS_SIGN, IN_PAIR);
+        on(IN_EQUALS, GREATER_SIGN, IN_PAIR);
+        on(IN_LESS, EQUALS_SIGN, IN_PAIR);
+        on(IN_GREATER, EQUALS_SIGN, IN_PAIR);
+        on(IN_BANG, EQUALS_SIGN, IN_PAIR);
+
+        Arrays.fill(ACCEPTS, FAIL);
+        ACCEPTS[IN_NAME] = NAME;
+        ACCEPTS[IN_INTEGER] = ACCEPTS[IN_FRACTION] = NUMBER;
+        ACCEPTS[WORD_END] = WORD;
+        ACCEPTS[CHAR_END] = CHARACTER;
+        ACCEPTS[IN_SLASH] = ACCEPTS[IN_SINGLE] = ACCEPTS[IN_EQUALS] = ACCEPTS[IN_PAIR] = SYMBOL;
+        ACCEPTS[IN_LESS] = ACCEPTS[IN_GREATER] = ACCEPTS[IN_BANG] = SYMBOL;
+        ACCEPTS[IN_SPACE] = ACCEPTS[IN_COMMENT] = SKIP;
+    }
+
+    private static void on(int state, int c, int next){
+        NEXT[state][c] = (byte) next;
+    }
+
+    /*
+     * the tokens
+     */
+
+    /**the kind of each token, and its id: the interned text, or the char itself for a CHARACTER*/
+    byte[] kinds = new byte[256];
+    int[] values = new int[256];
+    /**the (zero based) line and column each token starts at*/
+    int[] lines = new int[256], columns = new int[256];
+    /**for each [ and (, the index of the ] or ) closing it, and the other way round. -1 if there is none*/
+    int[] matches = new int[256];
+    /**how many tokens there are, the last being END*/
+    int count = 0;
+
+    /**the [s and (s still waiting to be closed*/
+    private int[] squares = new int[16], rounds = new int[16];
+    private int squareCount = 0, roundCount = 0;
+
+    /**the text of each id*/
+    private String[] texts = new String[64];
+    private int textCount = 0;
+    /**an open addressing hash table of ids, so text can be looked up without cutting it out of its line*/
+    private int[] table = new int[128];
+
+    /**the line being lexed, and the character read after a \r that turned out not to be part of its line break*/
+    private char[] line = new char[256];
+    private int pushedBack = -1;
+
+    Lexer(Source source){
+        Arrays.fill(table, -1);
+        for (String spelling: SPELLINGS)
+            intern(spelling.toCharArray(), 0, spelling.length());
+
+        int lineNum = 0;
+
+        try {
+            for (int length = readLine(source); length != -1; length = readLine(source))
+                lexLine(length, lineNum++);
+        } catch (IOException e){
+            throw new ProgramException("Error reading " + source.name + ":" + e.getMessage() + ".");
+        }
+
+        add(END, -1, lineNum, 0);
+    }
+
+    /**
+     * @return the text interned as id
+     */
+    String text(int id){
+        return texts[id];
+    }
+
+    /**
+     * @return the text of the token at index, for error messages
+     */
+    String token(int index){
+        switch (kinds[index]){
+            case END:
+                return "";
+            case CHARACTER:
+                return String.valueOf((char) values[index]);
+            default:
+                return texts[values[index]];
+        }
+    }
+
+    /**
+     * reads the next line of source into line, without its line break (\n, \r\n or \r)
+     * @return how long the line is, or -1 if the code has ended
+     */
+    private int readLine(Source source) throws IOException {
+        int c = pushedBack != -1 ? pushedBack : source.read(), length = 0;
+        pushedBack = -1;
+
+        if (c == -1)
+            return -1;
+
+        while (c != -1 && c != '\n' && c != '\r'){
+            if (length == line.length)
+                line = Arrays.copyOf(line, length * 2);
+            line[length++] = (char) c;
+            c = source.read();
+        }
+
+        if (c == '\r'){
+            c = source.read();
+            if (c != '\n')
+                pushedBack = c;
+        }
+
+        return length;
+    }
+
+    private void lexLine(int length, int lineNum){
+        int index = 0;
+
+        while (index < length){
+            int state = START, start = index;
+
+            while (index < length){
+                char c = line[index];
+                int next = NEXT[state][c < 128 ? CLASSES[c] : OTHER];
+                if (next == -1)
+                    break;
+                state = next;
+                index++;
+            }
+
+            switch (ACCEPTS[state]){
+                case SKIP:
+                    break;
+                case CHARACTER: {
+                    char value = line[start + 1];
+                    if (value == '\\' && index - start == 4)
+                        value = escape(line[start + 2]);
+                    add(CHARACTER, value, lineNum, start);
+                    break;
+                }
+                case WORD:
+                    add(WORD, intern(line, start + 1, index - 1), lineNum, start);
+                    break;
+                case FAIL:
+                    fail(state, start, index, lineNum);
+                    break;
+                default:
+                    add(ACCEPTS[state], intern(line, start, index), lineNum, start);
+            }
+        }
+    }
+
+    /**
+     * reports the token from start to index, which stopped in state without being a whole token
+     */
+    private void fail(int state, int start, int index, int lineNum){
+        String string;
+
+        if (state == START)
+            string = "unknown character \"" + line[start] + "\" given";
+        else if (state == IN_DOT)
+            string = "\"" + new String(line, start, index - start) + "\" given \"number\" expected";
+        else if (state == IN_WORD)
+            string = "Missing \"";
+        else
+            string = "Missing '";
+
+        exception(lineNum, start, string);
+    }
+
+    private char escape(char c){
+        switch (c){
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case '0':
+                return (char) 0;
+            default:
+                return c;
+        }
+    }
+
+    private void add(int kind, int value, int line, int column){
+        if (count == kinds.length){
+            kinds = Arrays.copyOf(kinds, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+            columns = Arrays.copyOf(columns, count * 2);
+            matches = Arrays.copyOf(matches, count * 2);
+        }
+
+        kinds[count] = (byte) kind;
+        values[count] = value;
+        lines[count] = line;
+        columns[count] = column;
+        matches[count] = -1;
+
+        if (kind == SYMBOL)
+            pair(value, count);
+        count++;
+    }
+
+    /**
+     * pairs the bracket at index, if it is one, with the one it closes
+     */
+    private void pair(int id, int index){
+        if (id == OPEN){
+            if (squareCount == squares.length)
+                squares = Arrays.copyOf(squares, squareCount * 2);
+            squares[squareCount++] = index;
+        }
+        else if (id == LEFT){
+            if (roundCount == rounds.length)
+                rounds = Arrays.copyOf(rounds, roundCount * 2);
+            rounds[roundCount++] = index;
+        }
+        else if (id == CLOSE && squareCount > 0){
+            matches[index] = squares[--squareCount];
+            matches[matches[index]] = index;
+        }
+        else if (id == RIGHT && roundCount > 0){
+            matches[index] = rounds[--roundCount];
+            matches[matches[index]] = index;
+        }
+    }
+
+    /**
+     * @return the id of line from start to end, only making a String of it the first time it is seen
+     */
+    private int intern(char[] line, int start, int end){
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + line[i];
+
+        int length = end - start, mask = table.length - 1;
+        int slot = (hash ^ hash >>> 16) & mask;
+
+        while (table[slot] != -1){
+            String text = texts[table[slot]];
+            if (text.length() == length && sameText(text, line, start))
+                return table[slot];
+            slot = (slot + 1) & mask;
+        }
+
+        if (textCount == texts.length)
+            texts = Arrays.copyOf(texts, textCount * 2);
+        texts[textCount] = new String(line, start, length);
+        table[slot] = textCount;
+
+        if (++textCount * 2 > table.length)
+            rehash();
+        return textCount - 1;
+    }
+
+    /**
+     * @return whether text is in line at start
+     */
+    private boolean sameText(String text, char[] line, int start){
+        for (int i = 0; i < text.length(); i++)
+            if (text.charAt(i) != line[start + i])
+                return false;
+        return true;
+    }
+
+    private void rehash(){
+        table = new int[table.length * 2];
+        Arrays.fill(table, -1);
+        int mask = table.length - 1;
+
+        for (int id = 0; id < textCount; id++){
+            int hash = texts[id].hashCode();
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (table[slot] != -1)
+                slot = (slot + 1) & mask;
+            table[slot] = id;
+        }
+    }
+
+    private void exception(int line, int column, String string){
+        throw new ProgramException(line, column, string);
+    }
+}
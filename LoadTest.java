@@ -0,0 +1,63 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * shows how a ScriptHost copes with more and more runs at once: 1, 10, 100 and so on up to the most asked for,
+ * every run of the same program started together. each level reports how long it took, the programs run per second,
+ * the latency of a run from being started to finishing, and the most platform threads there were
+ */
+public class LoadTest
+{
+    private final ScriptHost host;
+    private final CompiledProgram program;
+
+    LoadTest(ScriptHost host, CompiledProgram program){
+        this.host = host;
+        this.program = program;
+    }
+
+    /**
+     * runs every level up to concurrency runs at once and prints a line for each to report
+     */
+    void run(int concurrency, PrintStream report){
+        // the output every run should give, which warms up the VirtualMachine as well
+        int length = program.run().length();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        report.println("running " + program.name() + " on " + (host.isVirtual() ? "virtual threads" : "a pool of platform threads"));
+
+        for (int level = 1; level <= concurrency; level *= 10){
+            long[] nanos = new long[level];
+            AtomicInteger failures = new AtomicInteger();
+            CompletableFuture<?>[] runs = new CompletableFuture<?>[level];
+            threads.resetPeakThreadCount();
+
+            long start = System.nanoTime();
+
+            for (int i = 0; i < level; i++){
+                int run = i;
+                long started = System.nanoTime();
+                // the output is only counted, the way a service would queue it rather than wait on it
+                int[] written = new int[1];
+
+                runs[i] = host.submit(program, chunk -> written[0] += chunk.length()).whenComplete((ignored, e) -> {
+                    nanos[run] = System.nanoTime() - started;
+                    if (e != null || written[0] != length)
+                        failures.incrementAndGet();
+                });
+            }
+
+            CompletableFuture.allOf(runs).exceptionally(e -> null).join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Arrays.sort(nanos);
+
+            report.printf("%6d at once: %.3f s, %.1f programs/sec, latency p50 %.3f ms, p99 %.3f ms, %d threads at most, %d failed%n",
+                    level, seconds, level / seconds, BatchRunner.percentile(nanos, 50), BatchRunner.percentile(nanos, 99),
+                    threads.getPeakThreadCount(), failures.get());
+        }
+    }
+}
@@ -0,0 +1,386 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * the abstract syntax tree built by the Parser. every node remembers the line it started on
+ * so errors found while running can still point back at the code
+ */
+public abstract class Node
+{
+    /**the (zero based) line the node starts on*/
+    int line;
+
+    /**the types, as the codes the backends switch on in place of the names*/
+    static final int INTEGER = 0, DOUBLE = 1, CHAR = 2, BOOLEAN = 3, WORD = 4, NOTHING = 5;
+
+    /**the operators of Binary and Unary, as codes*/
+    static final int ADD = 0, SUBTRACT = 1, MULTIPLY = 2, DIVIDE = 3, REMAINDER = 4;
+    static final int EQUAL = 5, NOT_EQUAL = 6, LESS = 7, GREATER = 8, LESS_EQUAL = 9, GREATER_EQUAL = 10;
+    static final int AND = 11, OR = 12, NEGATE = 13, NOT = 14;
+
+    Node(int line){
+        this.line = line;
+    }
+
+    /**
+     * @return the code of the type named type
+     */
+    static int kind(String type){
+        switch (type){
+            case "integer":
+                return INTEGER;
+            case "double":
+                return DOUBLE;
+            case "char":
+                return CHAR;
+            case "boolean":
+                return BOOLEAN;
+            case "word":
+                return WORD;
+            default:
+                return NOTHING;
+        }
+    }
+
+    /**
+     * @param unary whether the operator has one operand, which makes "-" negation
+     * @return the code of operator
+     */
+    static int op(String operator, boolean unary){
+        switch (operator){
+            case "+":
+                return ADD;
+            case "-":
+                return unary ? NEGATE : SUBTRACT;
+            case "*":
+                return MULTIPLY;
+            case "/":
+                return DIVIDE;
+            case "%":
+                return REMAINDER;
+            case "=":
+                return EQUAL;
+            case "!=":
+                return NOT_EQUAL;
+            case "<":
+                return LESS;
+            case ">":
+                return GREATER;
+            case "=<":
+                return LESS_EQUAL;
+            case "=>":
+                return GREATER_EQUAL;
+            case "&":
+                return AND;
+            case "|":
+                return OR;
+            default:
+                return NOT;
+        }
+    }
+
+    /**
+     * a declared variable or parameter
+     */
+    static class Symbol {
+        /**the name and primitive type of the variable*/
+        String name, type;
+        /**the code of type*/
+        int kind;
+        /**whether the variable is declared outside of every command*/
+        boolean global;
+        /**the line the variable was declared on*/
+        int line;
+        /**where the Resolver put the variable: its index if global, else its slot in the frame of its command*/
+        int slot = -1;
+
+        Symbol(String name, String type, boolean global, int line){
+            this.name = name;
+            this.type = type;
+            this.kind = kind(type);
+            this.global = global;
+            this.line = line;
+        }
+
+        @Override
+        public String toString(){
+            return type + " " + name;
+        }
+    }
+
+    /**
+     * the whole program: the universal variables and every command
+     */
+    static class Program extends Node {
+        ArrayList<Declare> globals = new ArrayList<>();
+        LinkedHashMap<String, Command> commands = new LinkedHashMap<>();
+
+        Program(int line){
+            super(line);
+        }
+    }
+
+    /**
+     * command name(type a, type b) gives type [ ... ]
+     */
+    static class Command extends Node {
+        String name, returnType = "nothing";
+        /**the code of returnType, set with it*/
+        int returnKind = NOTHING;
+        ArrayList<Symbol> params = new ArrayList<>();
+        Block body;
+        /**the variable in each slot of the frame, filled in by the Resolver*/
+        ArrayList<Symbol> frame = new ArrayList<>();
+
+        Command(String name, int line){
+            super(line);
+            this.name = name;
+        }
+
+        @Override
+        public String toString(){
+            return "command " + name + params + " gives " + returnType;
+        }
+    }
+
+    /*
+     * statements
+     */
+
+    abstract static class Statement extends Node {
+        Statement(int line){
+            super(line);
+        }
+    }
+
+    /**
+     * a bracketed list of statements. locals holds the variables declared directly inside it
+     */
+    static class Block extends Statement {
+        ArrayList<Statement> statements = new ArrayList<>();
+        ArrayList<Symbol> locals = new ArrayList<>();
+
+        Block(int line){
+            super(line);
+        }
+    }
+
+    /**
+     * type name = value
+     */
+    static class Declare extends Statement {
+        Symbol symbol;
+        Expression value;
+
+        Declare(Symbol symbol, Expression value, int line){
+            super(line);
+            this.symbol = symbol;
+            this.value = value;
+        }
+    }
+
+    /**
+     * name = value
+     */
+    static class Assign extends Statement {
+        Variable target;
+        Expression value;
+
+        Assign(Variable target, Expression value, int line){
+            super(line);
+            this.target = target;
+            this.value = value;
+        }
+    }
+
+    /**
+     * output and outputNL
+     */
+    static class Output extends Statement {
+        Expression value;
+        boolean newLine;
+
+        Output(Expression value, boolean newLine, int line){
+            super(line);
+            this.value = value;
+            this.newLine = newLine;
+        }
+    }
+
+    /**
+     * if, with otherwise being the else block, the next else if, or null
+     */
+    static class If extends Statement {
+        Expression condition;
+        Block then;
+        Statement otherwise;
+
+        If(Expression condition, Block then, int line){
+            super(line);
+            this.condition = condition;
+            this.then = then;
+        }
+    }
+
+    static class While extends Statement {
+        Expression condition;
+        Block body;
+
+        While(Expression condition, Block body, int line){
+            super(line);
+            this.condition = condition;
+            this.body = body;
+        }
+    }
+
+    static class DoWhile extends Statement {
+        Block body;
+        Expression condition;
+
+        DoWhile(Block body, Expression condition, int line){
+            super(line);
+            this.body = body;
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * for (init; condition; update) [ ... ], where init is either a Declare or an Assign
+     */
+    static class For extends Statement {
+        Statement init;
+        Expression condition;
+        Assign update;
+        Block body;
+
+        For(int line){
+            super(line);
+        }
+    }
+
+    static class Break extends Statement {
+        Break(int line){
+            super(line);
+        }
+    }
+
+    /**
+     * give, with value null for commands that give nothing
+     */
+    static class Give extends Statement {
+        Expression value;
+
+        Give(Expression value, int line){
+            super(line);
+            this.value = value;
+        }
+    }
+
+    /**
+     * a command called for its side effects
+     */
+    static class CallStatement extends Statement {
+        Call call;
+
+        CallStatement(Call call, int line){
+            super(line);
+            this.call = call;
+        }
+    }
+
+    /**
+     * a statement the Parser found a type error in. it fails with message once it is reached, so everything
+     * before it still runs
+     */
+    static class Fail extends Statement {
+        String message;
+
+        Fail(String message, int line){
+            super(line);
+            this.message = message;
+        }
+    }
+
+    /*
+     * expressions
+     */
+
+    abstract static class Expression extends Node {
+        /**the primitive type the expression produces*/
+        String type;
+        /**the code of type*/
+        int kind;
+
+        Expression(String type, int line){
+            super(line);
+            this.type = type;
+            this.kind = kind(type);
+        }
+    }
+
+    /**
+     * an Integer, Double, Character, String or Boolean written in the code
+     */
+    static class Literal extends Expression {
+        Object value;
+
+        Literal(Object value, String type, int line){
+            super(type, line);
+            this.value = value;
+        }
+    }
+
+    static class Variable extends Expression {
+        Symbol symbol;
+
+        Variable(Symbol symbol, int line){
+            super(symbol.type, line);
+            this.symbol = symbol;
+        }
+    }
+
+    /**
+     * arithmetic (+ - * / %), relations (= != < > =< =>) and boolean logic (& |)
+     */
+    static class Binary extends Expression {
+        String operator;
+        /**the code of operator*/
+        int op;
+        Expression left, right;
+
+        Binary(String operator, Expression left, Expression right, String type, int line){
+            super(type, line);
+            this.operator = operator;
+            this.op = op(operator, false);
+            this.left = left;
+            this.right = right;
+        }
+    }
+
+    /**
+     * negation (-) and not (!)
+     */
+    static class Unary extends Expression {
+        String operator;
+        /**the code of operator*/
+        int op;
+        Expression operand;
+
+        Unary(String operator, Expression operand, String type, int line){
+            super(type, line);
+            this.operator = operator;
+            this.op = op(operator, true);
+            this.operand = operand;
+        }
+    }
+
+    static class Call extends Expression {
+        Command command;
+        ArrayList<Expression> arguments = new ArrayList<>();
+
+        Call(Command command, int line){
+            super(command.returnType, line);
+            this.command = command;
+        }
+    }
+}
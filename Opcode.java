@@ -0,0 +1,113 @@
+/**
+ * the instructions of the VirtualMachine. each instruction is an opcode followed by OPERANDS[opcode] ints
+ */
+public class Opcode
+{
+    /**push an int operand, or the double/word at a constant pool index*/
+    static final int CONST_INT = 0, CONST_DOUBLE = 1, CONST_WORD = 2;
+
+    /**load/store the variable in a frame slot*/
+    static final int LOAD_INT = 3, LOAD_DOUBLE = 4, LOAD_CHAR = 5, LOAD_BOOLEAN = 6, LOAD_WORD = 7;
+    static final int STORE_INT = 8, STORE_DOUBLE = 9, STORE_CHAR = 10, STORE_BOOLEAN = 11, STORE_WORD = 12;
+
+    /**load/store a universal variable*/
+    static final int GLOAD_INT = 13, GLOAD_DOUBLE = 14, GLOAD_CHAR = 15, GLOAD_BOOLEAN = 16, GLOAD_WORD = 17;
+    static final int GSTORE_INT = 18, GSTORE_DOUBLE = 19, GSTORE_CHAR = 20, GSTORE_BOOLEAN = 21, GSTORE_WORD = 22;
+
+    /**integer <-> double, where D2I fails unless the double is whole and an integer can hold it*/
+    static final int I2D = 23, D2I = 24;
+
+    static final int IADD = 25, ISUB = 26, IMUL = 27, IDIV = 28, IREM = 29, INEG = 30;
+    static final int DADD = 31, DSUB = 32, DMUL = 33, DDIV = 34, DREM = 35, DNEG = 36;
+
+    /**comparisons, pushing a boolean. IEQ/INE also compare chars and booleans*/
+    static final int IEQ = 37, INE = 38, ILT = 39, IGT = 40, ILE = 41, IGE = 42;
+    static final int DEQ = 43, DNE = 44, DLT = 45, DGT = 46, DLE = 47, DGE = 48;
+    static final int WEQ = 49, WNE = 50;
+
+    static final int NOT = 51;
+
+    /**jumps to an absolute instruction index*/
+    static final int JUMP = 52, JUMP_IF_FALSE = 53, JUMP_IF_TRUE = 54;
+
+    /**CALL takes a command index. RETURN_VALUE gives the top of the stack, NO_RETURN fails*/
+    static final int CALL = 55, RETURN = 56, RETURN_VALUE = 57, NO_RETURN = 58;
+
+    static final int OUTPUT_INT = 59, OUTPUT_DOUBLE = 60, OUTPUT_CHAR = 61, OUTPUT_BOOLEAN = 62, OUTPUT_WORD = 63;
+    static final int NEWLINE = 64, POP = 65;
+
+    /**CALL in place of the running command, which is finished: the callee gives back straight to its caller*/
+    static final int TAIL_CALL = 66;
+
+    /**
+     * compare the top two and jump if the comparison holds, so a condition never makes a boolean.
+     * & and | are made of these and the jumps above, skipping their right side once the left decides
+     */
+    static final int IF_IEQ = 67, IF_INE = 68, IF_ILT = 69, IF_IGT = 70, IF_ILE = 71, IF_IGE = 72;
+    static final int IF_DEQ = 73, IF_DNE = 74, IF_DLT = 75, IF_DGT = 76, IF_DLE = 77, IF_DGE = 78;
+
+    /**
+     * where a run may be stopped or paused: the start of every command and every loop's condition, so nothing
+     * runs for long without passing one. it only checks the run's limits once enough instructions have gone by
+     */
+    static final int SAFEPOINT = 79;
+
+    /**fails the run with the word at a constant pool index, for a statement the Parser found a type error in*/
+    static final int FAIL = 80;
+
+    static final String[] NAMES = {
+            "CONST_INT", "CONST_DOUBLE", "CONST_WORD",
+            "LOAD_INT", "LOAD_DOUBLE", "LOAD_CHAR", "LOAD_BOOLEAN", "LOAD_WORD",
+            "STORE_INT", "STORE_DOUBLE", "STORE_CHAR", "STORE_BOOLEAN", "STORE_WORD",
+            "GLOAD_INT", "GLOAD_DOUBLE", "GLOAD_CHAR", "GLOAD_BOOLEAN", "GLOAD_WORD",
+            "GSTORE_INT", "GSTORE_DOUBLE", "GSTORE_CHAR", "GSTORE_BOOLEAN", "GSTORE_WORD",
+            "I2D", "D2I",
+            "IADD", "ISUB", "IMUL", "IDIV", "IREM", "INEG",
+            "DADD", "DSUB", "DMUL", "DDIV", "DREM", "DNEG",
+            "IEQ", "INE", "ILT", "IGT", "ILE", "IGE",
+            "DEQ", "DNE", "DLT", "DGT", "DLE", "DGE",
+            "WEQ", "WNE",
+            "NOT",
+            "JUMP", "JUMP_IF_FALSE", "JUMP_IF_TRUE",
+            "CALL", "RETURN", "RETURN_VALUE", "NO_RETURN",
+            "OUTPUT_INT", "OUTPUT_DOUBLE", "OUTPUT_CHAR", "OUTPUT_BOOLEAN", "OUTPUT_WORD",
+            "NEWLINE", "POP",
+            "TAIL_CALL",
+            "IF_IEQ", "IF_INE", "IF_ILT", "IF_IGT", "IF_ILE", "IF_IGE",
+            "IF_DEQ", "IF_DNE", "IF_DLT", "IF_DGT", "IF_DLE", "IF_DGE",
+            "SAFEPOINT",
+            "FAIL"
+    };
+
+    /**how many ints follow each opcode*/
+    static final int[] OPERANDS = new int[NAMES.length];
+    /**how each opcode changes the height of the stack (CALL and TAIL_CALL depend on the command)*/
+    static final int[] STACK_EFFECT = new int[NAMES.length];
+
+    static {
+        for (int op = CONST_INT; op <= GSTORE_WORD; op++)
+            OPERANDS[op] = 1;
+        OPERANDS[JUMP] = OPERANDS[JUMP_IF_FALSE] = OPERANDS[JUMP_IF_TRUE] = OPERANDS[CALL] = OPERANDS[TAIL_CALL] = 1;
+        OPERANDS[FAIL] = 1;
+        for (int op = IF_IEQ; op <= IF_DGE; op++)
+            OPERANDS[op] = 1;
+
+        for (int op = CONST_INT; op <= LOAD_WORD; op++)
+            STACK_EFFECT[op] = 1;
+        for (int op = GLOAD_INT; op <= GLOAD_WORD; op++)
+            STACK_EFFECT[op] = 1;
+        for (int op = STORE_INT; op <= STORE_WORD; op++)
+            STACK_EFFECT[op] = -1;
+        for (int op = GSTORE_INT; op <= GSTORE_WORD; op++)
+            STACK_EFFECT[op] = -1;
+        for (int op = IADD; op <= WNE; op++)
+            STACK_EFFECT[op] = -1;
+        for (int op = IF_IEQ; op <= IF_DGE; op++)
+            STACK_EFFECT[op] = -2;
+        for (int op = OUTPUT_INT; op <= OUTPUT_WORD; op++)
+            STACK_EFFECT[op] = -1;
+
+        STACK_EFFECT[INEG] = STACK_EFFECT[DNEG] = 0;
+        STACK_EFFECT[JUMP_IF_FALSE] = STACK_EFFECT[JUMP_IF_TRUE] = STACK_EFFECT[RETURN_VALUE] = STACK_EFFECT[POP] = -1;
+    }
+}
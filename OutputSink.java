@@ -0,0 +1,22 @@
+import java.io.PrintStream;
+
+/**
+ * where the output of a running program goes. the VirtualMachine collects what a program outputs itself
+ * and hands it over a chunk at a time, on the thread running the program, so a sink must never block or lock:
+ * one that sends output somewhere slow should queue it and return, so thousands of runs can share a few threads
+ */
+@FunctionalInterface
+public interface OutputSink
+{
+    /**
+     * takes the next chunk of output. it is only ever called by one thread at a time for a run
+     */
+    void write(String chunk);
+
+    /**
+     * @return a sink that prints each chunk to out (which locks, so it is for the command line rather than a host)
+     */
+    static OutputSink of(PrintStream out){
+        return out::print;
+    }
+}
@@ -0,0 +1,700 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/**
+ * turns the tokens made by the Lexer into a tree of Nodes in one pass, checking names and types along the way
+ * so the Interpreter never has to look at the text again. a type error in a command is not reported straight away:
+ * the statement it is in becomes a Node.Fail, so the program fails when it gets there
+ */
+public class Parser
+{
+    /**the tokens of the code, made by the Lexer*/
+    private Lexer lexer;
+    /**the index of the lookahead token*/
+    private int position = -1;
+    /**the lookahead token's text, kind, id (see Lexer) and where it starts*/
+    private String token = "";
+    private int kind = Lexer.END, id = -1, tokenLine = 0, tokenColumn = 0;
+
+    /**the universal variables, and the scopes (innermost first) of the command being parsed*/
+    private HashMap<String, Node.Symbol> globals = new HashMap<>();
+    private LinkedList<HashMap<String, Node.Symbol>> scopes = new LinkedList<>();
+    /**every command, found before any body is parsed so calls can be checked*/
+    private HashMap<String, Node.Command> commands = new HashMap<>();
+    private Node.Command currentCommand;
+    /**how many loops the current statement is in*/
+    private int loopDepth = 0;
+    /**the first type error in the statement being parsed, or null*/
+    private Node.Fail typeError;
+
+    Parser(Source source){
+        lexer = new Lexer(source);
+    }
+
+    /**
+     * parses the whole program
+     * @return the tree of the program
+     */
+    Node.Program program(){
+        scanCommands();
+        next();
+
+        Node.Program program = new Node.Program(tokenLine);
+        match(Lexer.PROGRAM);
+        match(Lexer.OPEN);
+
+        while (!is(Lexer.CLOSE)){
+            if (kind == Lexer.END)
+                exception("no ']' found");
+            else if (is(Lexer.COMMAND)) {
+                Node.Command command = command();
+                program.commands.put(command.name, command);
+            }
+            else if (isPrimitiveType()) {
+                String type = token;
+                next();
+                declaration(type, true, program.globals);
+
+                // the universal variables are set before anything runs, so their errors can be reported now
+                if (typeError != null)
+                    exception(typeError.line, typeError.message);
+            }
+            else
+                expected(token, "declaration or command");
+        }
+        match(Lexer.CLOSE);
+
+        if (kind != Lexer.END)
+            expected(token, "end of program");
+        if (commands.get("start") == null)
+            exception("no start command");
+
+        return program;
+    }
+
+    /*
+     * reading tokens
+     */
+
+    /**
+     * moves the lookahead on to the next token, staying on END once it is there
+     */
+    private void next(){
+        if (position < lexer.count - 1)
+            position++;
+
+        kind = lexer.kinds[position];
+        id = lexer.values[position];
+        token = lexer.token(position);
+        tokenLine = lexer.lines[position];
+        tokenColumn = lexer.columns[position];
+    }
+
+    /**
+     * @return whether the lookahead is the symbol or keyword interned as id
+     */
+    private boolean is(int id){
+        return (kind == Lexer.SYMBOL || kind == Lexer.NAME) && this.id == id;
+    }
+
+    private void match(int id){
+        if (!is(id))
+            expected(token, lexer.text(id));
+        next();
+    }
+
+    /**
+     * @return the name under the lookahead
+     */
+    private String getName(){
+        if (kind != Lexer.NAME)
+            expected(token, "Name");
+        String name = token;
+        next();
+        return name;
+    }
+
+    /**
+     * reports an error at the lookahead, which knows its column as well as its line
+     */
+    private void exception(String string){
+        throw new ProgramException(tokenLine, tokenColumn, string);
+    }
+
+    private void exception(int line, String string){
+        throw new ProgramException(line, string);
+    }
+
+    private void expected(String given, String string){
+        exception("\"" + given + "\" given \"" + string + "\" expected");
+    }
+
+    /*
+     * commands
+     */
+
+    /**
+     * finds the signature of every command before any body is parsed, jumping over the bodies
+     */
+    private void scanCommands(){
+        next();
+        int depth = 0;
+
+        while (kind != Lexer.END){
+            if (depth == 1 && is(Lexer.COMMAND)) {
+                Node.Command command = signature();
+
+                if (commands.get(command.name) != null)
+                    exception(command.line, "duplicate command: " + command.name);
+                commands.put(command.name, command);
+
+                // the body is skipped in one step, to the ] the Lexer paired with its [
+                if (is(Lexer.OPEN) && lexer.matches[position] != -1){
+                    position = lexer.matches[position];
+                    next();
+                }
+            }
+            else {
+                if (is(Lexer.OPEN))
+                    depth++;
+                else if (is(Lexer.CLOSE))
+                    depth--;
+                next();
+            }
+        }
+
+        position = -1;
+    }
+
+    /**
+     * command name(type a, type b) gives type
+     * @return the command, without a body
+     */
+    private Node.Command signature(){
+        int line = tokenLine;
+        match(Lexer.COMMAND);
+        Node.Command command = new Node.Command(getName(), line);
+        match(Lexer.LEFT);
+
+        while (!is(Lexer.RIGHT)){
+            int paramLine = tokenLine;
+            if (!isPrimitiveType())
+                expected(token, "primitive type");
+            String paramType = getName();
+
+            String paramName = getName();
+            for (Node.Symbol param: command.params)
+                if (param.name.equals(paramName))
+                    exception(paramLine, "duplicate variable: " + paramName);
+
+            command.params.add(new Node.Symbol(paramName, paramType, false, paramLine));
+
+            if (!is(Lexer.RIGHT))
+                match(Lexer.COMMA);
+        }
+        match(Lexer.RIGHT);
+
+        if (is(Lexer.GIVES)){
+            next();
+            if (!is(Lexer.NOTHING) && !isPrimitiveType())
+                expected(token, "primitive type");
+            command.returnType = getName();
+            command.returnKind = Node.kind(command.returnType);
+        }
+
+        if (command.name.equals("start") && (command.params.size() != 0 || !command.returnType.equals("nothing")))
+            exception(line, "start takes nothing and gives nothing");
+
+        return command;
+    }
+
+    private Node.Command command(){
+        Node.Command command = commands.get(signature().name);
+        currentCommand = command;
+
+        HashMap<String, Node.Symbol> params = new HashMap<>();
+        for (Node.Symbol param: command.params)
+            params.put(param.name, param);
+
+        scopes.push(params);
+        command.body = block();
+        scopes.pop();
+
+        return command;
+    }
+
+    /*
+     * statements
+     */
+
+    private Node.Block block(){
+        Node.Block block = new Node.Block(tokenLine);
+        match(Lexer.OPEN);
+        scopes.push(new HashMap<>());
+
+        while (!is(Lexer.CLOSE)){
+            if (kind == Lexer.END)
+                exception("no ']' found");
+            statement(block);
+        }
+
+        scopes.pop();
+        match(Lexer.CLOSE);
+        return block;
+    }
+
+    /**
+     * parses a statement and adds it to block, or a Node.Fail in its place if it has a type error
+     */
+    private void statement(Node.Block block){
+        Node.Fail outer = typeError;
+        typeError = null;
+        int start = block.statements.size();
+
+        statement(block, tokenLine);
+
+        if (typeError != null){
+            block.statements.subList(start, block.statements.size()).clear();
+            block.statements.add(typeError);
+        }
+        typeError = outer;
+    }
+
+    private void statement(Node.Block block, int line){
+
+        if (kind != Lexer.NAME)
+            exception("unknown character \"" + token + "\" given");
+
+        switch (id){
+            case Lexer.OUTPUT:
+            case Lexer.OUTPUT_NL: {
+                boolean newLine = id == Lexer.OUTPUT_NL;
+                next();
+                Node.Expression value = expression();
+                if (value.type.equals("nothing"))
+                    exception(line, "nothing given");
+                block.statements.add(new Node.Output(value, newLine, line));
+                break;
+            }
+            case Lexer.IF:
+                block.statements.add(ifStatement());
+                break;
+            case Lexer.WHILE: {
+                next();
+                Node.Expression condition = condition();
+                block.statements.add(new Node.While(condition, loopBody(), line));
+                break;
+            }
+            case Lexer.DO: {
+                next();
+                Node.Block body = loopBody();
+                match(Lexer.WHILE);
+                block.statements.add(new Node.DoWhile(body, condition(), line));
+                break;
+            }
+            case Lexer.FOR:
+                block.statements.add(forLoop());
+                break;
+            case Lexer.BREAK:
+                if (loopDepth == 0)
+                    exception("break must be in loop");
+                next();
+                block.statements.add(new Node.Break(line));
+                break;
+            case Lexer.GIVE: {
+                next();
+                Node.Expression value = null;
+                if (!currentCommand.returnType.equals("nothing")) {
+                    value = expression();
+                    checkAssignable(value, currentCommand.returnType);
+                }
+                block.statements.add(new Node.Give(value, line));
+                break;
+            }
+            default: {
+                boolean type = isPrimitiveType();
+                String name = getName();
+
+                if (type && kind == Lexer.NAME)
+                    declaration(name, block);
+                else if (is(Lexer.LEFT))
+                    block.statements.add(new Node.CallStatement(call(name, line), line));
+                else if (is(Lexer.EQUALS))
+                    block.statements.add(assignment(name, line));
+                else
+                    exception(line, "unknown characters \"" + name + "\"");
+            }
+        }
+    }
+
+    /**
+     * type name = value, name = value ...
+     * @param statements where each Declare is added
+     */
+    private void declaration(String type, boolean global, ArrayList<? super Node.Declare> statements){
+        do {
+            if (is(Lexer.COMMA))
+                next();
+            statements.add(declare(type, global));
+        } while (is(Lexer.COMMA));
+    }
+
+    /**
+     * type name = value, name = value ... inside block
+     */
+    private void declaration(String type, Node.Block block){
+        int start = block.statements.size();
+        declaration(type, false, block.statements);
+
+        for (int i = start; i < block.statements.size(); i++)
+            block.locals.add(((Node.Declare) block.statements.get(i)).symbol);
+    }
+
+    private Node.Declare declare(String type, boolean global){
+        int line = tokenLine;
+        String name = getName();
+
+        if (lookup(name) != null)
+            exception(line, global ? "duplicate variable: " + name : "variable " + name + " already exists");
+
+        match(Lexer.EQUALS);
+        Node.Expression value = expression();
+        checkAssignable(value, type);
+
+        Node.Symbol symbol = new Node.Symbol(name, type, global, line);
+        if (global)
+            globals.put(name, symbol);
+        else
+            scopes.peek().put(name, symbol);
+
+        return new Node.Declare(symbol, value, line);
+    }
+
+    private Node.Assign assignment(String name, int line){
+        Node.Variable target = variable(name, line);
+        match(Lexer.EQUALS);
+        Node.Expression value = expression();
+        checkAssignable(value, target.type);
+        return new Node.Assign(target, value, line);
+    }
+
+    private Node.If ifStatement(){
+        int line = tokenLine;
+        match(Lexer.IF);
+        Node.If statement = new Node.If(condition(), block(), line);
+
+        if (is(Lexer.ELSE)){
+            next();
+            statement.otherwise = is(Lexer.IF) ? ifStatement() : block();
+        }
+
+        return statement;
+    }
+
+    private Node.For forLoop(){
+        Node.For statement = new Node.For(tokenLine);
+        match(Lexer.FOR);
+        match(Lexer.LEFT);
+        scopes.push(new HashMap<>());
+
+        int line = tokenLine;
+        boolean type = isPrimitiveType();
+        String name = getName();
+        if (type && kind == Lexer.NAME)
+            statement.init = declare(name, false);
+        else
+            statement.init = assignment(name, line);
+
+        match(Lexer.SEMICOLON);
+        statement.condition = expression();
+        checkBoolean(statement.condition);
+        match(Lexer.SEMICOLON);
+
+        line = tokenLine;
+        statement.update = assignment(getName(), line);
+        match(Lexer.RIGHT);
+
+        statement.body = loopBody();
+        scopes.pop();
+        return statement;
+    }
+
+    private Node.Block loopBody(){
+        loopDepth++;
+        Node.Block body = block();
+        loopDepth--;
+        return body;
+    }
+
+    /**
+     * ( boolean expression )
+     */
+    private Node.Expression condition(){
+        match(Lexer.LEFT);
+        Node.Expression condition = expression();
+        checkBoolean(condition);
+        match(Lexer.RIGHT);
+        return condition;
+    }
+
+    /*
+     * expressions
+     */
+
+    /**
+     * handles the "or" boolean operations
+     */
+    private Node.Expression expression(){
+        Node.Expression left = boolTerm();
+
+        while (is(Lexer.OR)){
+            int line = tokenLine;
+            next();
+            Node.Expression right = boolTerm();
+            checkBoolean(left);
+            checkBoolean(right);
+            left = new Node.Binary("|", left, right, "boolean", line);
+        }
+
+        return left;
+    }
+
+    /**
+     * handles "and" boolean operations
+     */
+    private Node.Expression boolTerm(){
+        Node.Expression left = notFactor();
+
+        while (is(Lexer.AND)){
+            int line = tokenLine;
+            next();
+            Node.Expression right = notFactor();
+            checkBoolean(left);
+            checkBoolean(right);
+            left = new Node.Binary("&", left, right, "boolean", line);
+        }
+
+        return left;
+    }
+
+    private Node.Expression notFactor(){
+        if (is(Lexer.NOT)){
+            int line = tokenLine;
+            next();
+            Node.Expression operand = notFactor();
+            checkBoolean(operand);
+            return new Node.Unary("!", operand, "boolean", line);
+        }
+
+        return relation();
+    }
+
+    /**
+     * comparisons: = != < > =< =>
+     */
+    private Node.Expression relation(){
+        Node.Expression left = mathExpression();
+
+        if (is(Lexer.EQUALS) || is(Lexer.NOT_EQUALS) || is(Lexer.LESS) || is(Lexer.GREATER) || is(Lexer.AT_MOST) || is(Lexer.AT_LEAST) || is(Lexer.LESS_EQUALS) || is(Lexer.GREATER_EQUALS)){
+            int line = tokenLine;
+            String operator = id == Lexer.LESS_EQUALS ? "=<" : id == Lexer.GREATER_EQUALS ? "=>" : token;
+            next();
+            Node.Expression right = mathExpression();
+
+            if (!operator.equals("=") && !operator.equals("!=")){
+                checkNumeric(left);
+                checkNumeric(right);
+            }
+            else if (!(isNumeric(left.type) && isNumeric(right.type)) && !left.type.equals(right.type))
+                typeError(line, "\"" + right.type + "\" given \"" + left.type + "\" expected");
+
+            left = new Node.Binary(operator, left, right, "boolean", line);
+        }
+
+        return left;
+    }
+
+    /**
+     * handles addition and subtraction
+     */
+    private Node.Expression mathExpression(){
+        Node.Expression left = term();
+
+        while (is(Lexer.PLUS) || is(Lexer.MINUS)){
+            left = arithmetic(left, true);
+        }
+
+        return left;
+    }
+
+    /**
+     * handles multiplication, division and remainders
+     */
+    private Node.Expression term(){
+        Node.Expression left = factor();
+
+        while (is(Lexer.TIMES) || is(Lexer.DIVIDE) || is(Lexer.REMAINDER)){
+            left = arithmetic(left, false);
+        }
+
+        return left;
+    }
+
+    private Node.Expression arithmetic(Node.Expression left, boolean additive){
+        int line = tokenLine;
+        String operator = token;
+        next();
+        Node.Expression right = additive ? term() : factor();
+        checkNumeric(left);
+        checkNumeric(right);
+
+        String type = left.type.equals("integer") && right.type.equals("integer") ? "integer" : "double";
+        return new Node.Binary(operator, left, right, type, line);
+    }
+
+    private Node.Expression factor(){
+        int line = tokenLine;
+
+        switch (kind){
+            case Lexer.NUMBER: {
+                String number = token;
+                next();
+
+                try {
+                    if (number.contains("."))
+                        return new Node.Literal(Double.parseDouble(number), "double", line);
+                    return new Node.Literal(Integer.parseInt(number), "integer", line);
+                } catch (NumberFormatException e){
+                    exception(line, "incorrect input data " + number);
+                    return null;
+                }
+            }
+            case Lexer.WORD: {
+                String value = token;
+                next();
+                return new Node.Literal(value, "word", line);
+            }
+            case Lexer.CHARACTER: {
+                char value = (char) id;
+                next();
+                return new Node.Literal(value, "char", line);
+            }
+            case Lexer.NAME: {
+                if (is(Lexer.TRUE) || is(Lexer.FALSE)){
+                    boolean value = is(Lexer.TRUE);
+                    next();
+                    return new Node.Literal(value, "boolean", line);
+                }
+
+                String name = getName();
+
+                if (is(Lexer.LEFT)){
+                    Node.Call call = call(name, line);
+                    if (call.type.equals("nothing"))
+                        exception(line, "command \"" + name + "\" gives nothing");
+                    return call;
+                }
+                else
+                    return variable(name, line);
+            }
+            default:
+                if (is(Lexer.LEFT)){
+                    next();
+                    Node.Expression value = expression();
+                    match(Lexer.RIGHT);
+                    return value;
+                }
+                else if (is(Lexer.MINUS)){
+                    next();
+                    Node.Expression operand = factor();
+                    checkNumeric(operand);
+                    return new Node.Unary("-", operand, operand.type, line);
+                }
+
+                expected(token, "math expression");
+                return null;
+        }
+    }
+
+    private Node.Call call(String name, int line){
+        Node.Command command = commands.get(name);
+        if (command == null)
+            exception(line, "unknown characters \"" + name + "\"");
+
+        Node.Call call = new Node.Call(command, line);
+        match(Lexer.LEFT);
+
+        while (!is(Lexer.RIGHT)){
+            call.arguments.add(expression());
+            if (!is(Lexer.RIGHT))
+                match(Lexer.COMMA);
+        }
+        match(Lexer.RIGHT);
+
+        if (call.arguments.size() != command.params.size())
+            exception(line, "command " + name + " takes " + command.params.size() + " parameters");
+
+        for (int i = 0; i < call.arguments.size(); i++)
+            checkAssignable(call.arguments.get(i), command.params.get(i).type);
+
+        return call;
+    }
+
+    private Node.Variable variable(String name, int line){
+        Node.Symbol symbol = lookup(name);
+        if (symbol == null)
+            exception(line, "variable \"" + name + "\" does not exist");
+        return new Node.Variable(symbol, line);
+    }
+
+    /**
+     * @return the variable called name visible from here, or null
+     */
+    private Node.Symbol lookup(String name){
+        for (HashMap<String, Node.Symbol> scope: scopes){
+            Node.Symbol symbol = scope.get(name);
+            if (symbol != null)
+                return symbol;
+        }
+        return globals.get(name);
+    }
+
+    /*
+     * types
+     */
+
+    /**
+     * keeps the first type error of the statement, which fails it once it is reached
+     */
+    private void typeError(int line, String string){
+        if (typeError == null)
+            typeError = new Node.Fail(string, line);
+    }
+
+    private void checkAssignable(Node.Expression value, String type){
+        if (!value.type.equals(type) && !(isNumeric(type) && isNumeric(value.type)))
+            typeError(value.line, "\"" + value.type + "\" given \"" + type + "\" expected");
+    }
+
+    private void checkBoolean(Node.Expression value){
+        if (!value.type.equals("boolean"))
+            typeError(value.line, "\"" + value.type + "\" given \"boolean\" expected");
+    }
+
+    private void checkNumeric(Node.Expression value){
+        if (!isNumeric(value.type))
+            typeError(value.line, "not numeric");
+    }
+
+    private boolean isNumeric(String type){
+        return type.equals("integer") || type.equals("double");
+    }
+
+    /**
+     * @return whether the lookahead is one of the primitive types
+     */
+    private boolean isPrimitiveType(){
+        return kind == Lexer.NAME && id >= Lexer.INTEGER && id <= Lexer.WORD_TYPE;
+    }
+}
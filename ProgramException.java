@@ -0,0 +1,53 @@
+/**
+ * an error in a program, found while it was being read, compiled or run. its message is what the command line prints,
+ * such as "Error at line 3:Don't break math." or "Error at line 1, column 9:"x" given "integer" expected."
+ */
+public class ProgramException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    /**where the error is (from 1), or 0 if it is not at a line or column*/
+    private final int line, column;
+
+    /**
+     * an error that is not anywhere in the code, such as the file not being there
+     */
+    ProgramException(String message){
+        super(message);
+        line = 0;
+        column = 0;
+    }
+
+    /**
+     * @param line the (zero based) line of the error
+     */
+    ProgramException(int line, String string){
+        super("Error at line " + (line + 1) + ":" + string + ".");
+        this.line = line + 1;
+        column = 0;
+    }
+
+    /**
+     * @param line the (zero based) line of the error
+     * @param column the (zero based) column of the error
+     */
+    ProgramException(int line, int column, String string){
+        super("Error at line " + (line + 1) + ", column " + (column + 1) + ":" + string + ".");
+        this.line = line + 1;
+        this.column = column + 1;
+    }
+
+    /**
+     * @return the line of the error, from 1, or 0 if it is not at a line
+     */
+    public int getLine(){
+        return line;
+    }
+
+    /**
+     * @return the column of the error, from 1, or 0 if only its line is known
+     */
+    public int getColumn(){
+        return column;
+    }
+}
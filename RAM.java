@@ -1,77 +1,305 @@
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 public class RAM
 {
-    private boolean[] memory = new boolean[800000];
+    /**how many bits the RAM may use unless told otherwise*/
+    public static final int DEFAULT_LIMIT = 800000;
+    /**the most bits a RAM can have, as every bit is found by an int (256 MB)*/
+    public static final int MAX_LIMIT = Integer.MAX_VALUE;
+    /**the bits are packed 64 to a long, the first bit of each long its most significant, in pages of 2^15 bits*/
+    private static final int PAGE_SHIFT = 9, PAGE_LONGS = 1 << PAGE_SHIFT, PAGE_BITS = PAGE_LONGS * 64;
+
+    /**the sizes (in bits) of integers, doubles, chars and booleans, which each get a free list*/
+    private static final int[] SIZE_CLASSES = {1, 16, 32, 64};
+
+    /**the pages made so far, in order, null while swapped out. pages are only made once something is put in them*/
+    private long[][] pages = new long[4][];
+    private int pageCount = 0;
+    /**the most pages kept in the heap, and how many are*/
+    private int residentLimit = Integer.MAX_VALUE, residentCount = 0;
+    /**the swap file as longs, with room for every page the limit allows, or null if the RAM does not swap*/
+    private LongBuffer swap;
+    /**when each page was last used, so the least recently used page is the one swapped out*/
+    private long[] lastUsed = new long[4];
+    private long clock = 0, swapIns = 0, swapOuts = 0;
+    /**the most bits the RAM will use*/
+    private final int limit;
+    /**the end of the used bits: everything after it is free*/
     private int lastMemory = 0;
-    private char[] asciiTable;
-    private HashMap<String,Memory> buckets = new HashMap<>();
+    /**the starts of the freed blocks of each size class*/
+    private int[][] freeBlocks = new int[SIZE_CLASSES.length][16];
+    private int[] freeBlockCount = new int[SIZE_CLASSES.length];
+    /**freed regions of other sizes (the bits of words) by start, each as big as it can be*/
+    private TreeMap<Integer, Integer> freeRegions = new TreeMap<>();
+    /**the starts of the same regions by size, so the one to claim is found without walking them all*/
+    private TreeMap<Integer, TreeSet<Integer>> regionsBySize = new TreeMap<>();
+    /**the handle of each named variable, which allocateMemoryByMemory lets more than one name share*/
+    private HashMap<String,Integer> names = new HashMap<>();
+    /**unnamed variables, found by their index (handle) rather than a name*/
+    private Memory[] handles = new Memory[64];
+    private int[] freeHandles = new int[64];
+    private int handleCount = 0, freeHandleCount = 0;
+    /**the variables of freed handles, kept to be used again by allocate instead of making new ones*/
+    private Memory[] spare = new Memory[64];
+    private int spareCount = 0;
+    /**every handle made while a mark is open, with -1 where each mark was made, so a scope can be freed all at once*/
+    private int[] scope = new int[64];
+    private int scopeCount = 0;
     
     public RAM(){
-        asciiTable = new char[256];
-
-        for (int i = 0; i < asciiTable.length; i++)
-            asciiTable[i] = (char) i;
+        this(DEFAULT_LIMIT);
+    }
 
-        for (int i = 0; i < memory.length; i++)
-            memory[i] = false;
+    /**
+     * @param limit the most bits the RAM will use before it is out of memory, from 1 to MAX_LIMIT
+     */
+    public RAM(int limit){
+        if (limit < 1)
+            throw new IllegalArgumentException("the RAM needs at least 1 bit");
+        this.limit = limit;
     }
 
+    /*
+     * named variables, kept as a map from each name to a handle
+     */
+
     public int allocateMemory(String name, String type, String value){
-        if (buckets.get(name) != null)
-            return buckets.get(name).allocate(value);
-        else{
-            Memory data = new Memory(type);
-            int OK = data.allocate(value);
-            if (OK == 0)
-                buckets.put(name,data);
-            return OK;
-        }
+        Integer handle = names.get(name);
+        if (handle != null)
+            return write(handle, value);
+
+        int made = allocate(type);
+        if (made < 0)
+            return made;
+        // a named variable lives until deleteValue, not until the mark it was made in
+        if (scopeCount > 0)
+            scopeCount--;
+
+        int OK = write(made, value);
+        if (OK != 0)
+            free(made);
+        else
+            names.put(name, made);
+        return OK;
     }
 
     public int allocateMemoryByMemory(String newVariable, String previous, String type){
-        if (buckets.get(previous) == null || !type.equals(buckets.get(previous).type))
+        Integer handle = names.get(previous);
+        if (handle == null || !type.equals(handles[handle].type))
             return -2;
 
-        buckets.put(newVariable,buckets.get(previous));
+        Integer old = names.put(newVariable, handle);
+
+        if (!handle.equals(old)){
+            handles[handle].references++;
+            if (old != null)
+                unname(old);
+        }
         return 0;
     }
 
     public Object getValue(String name){
-        return buckets.get(name) == null ? null: buckets.get(name).read();
+        Integer handle = names.get(name);
+        return handle == null ? null : read(handle);
     }
 
     public boolean deleteValue(String name){
-        return buckets.remove(name) != null;
+        Integer handle = names.remove(name);
+
+        if (handle != null)
+            unname(handle);
+        return handle != null;
+    }
+
+    /**
+     * takes a name off handle, freeing it once no name is left
+     */
+    private void unname(int handle){
+        if (--handles[handle].references == 0)
+            free(handle);
+    }
+
+    /**
+     * makes an unnamed variable of type holding its default value, for code that keeps track of its own variables
+     * @return the handle of the variable, -1 if out of memory or -2 if the type is unknown
+     */
+    public int allocate(String type){
+        Memory data;
+        if (spareCount > 0){
+            data = spare[--spareCount];
+            data.type = type;
+        }
+        else
+            data = new Memory(type);
+        data.references = 1;
+
+        int OK = data.allocate(defaultValue(type));
+        if (OK != 0){
+            // it never got a handle, so it is kept to be used again
+            data.release();
+            keep(data);
+            return OK;
+        }
+
+        int handle;
+        if (freeHandleCount > 0)
+            handle = freeHandles[--freeHandleCount];
+        else {
+            if (handleCount == handles.length)
+                handles = Arrays.copyOf(handles, handleCount * 2);
+            handle = handleCount++;
+        }
+
+        handles[handle] = data;
+        if (scopeCount > 0)
+            push(handle);
+        return handle;
+    }
+
+    /**
+     * starts a scope: every handle made from now until release is given this mark is freed by it
+     * @return the mark
+     */
+    public int mark(){
+        push(-1);
+        return scopeCount - 1;
+    }
+
+    /**
+     * frees every handle made since mark was made, along with any marks made after it
+     */
+    public void release(int mark){
+        while (scopeCount > mark){
+            int handle = scope[--scopeCount];
+
+            // a handle already given to free is null, or has been made again later and is further up
+            if (handle != -1 && handles[handle] != null)
+                free(handle);
+        }
+    }
+
+    private void push(int handle){
+        if (scopeCount == scope.length)
+            scope = Arrays.copyOf(scope, scopeCount * 2);
+        scope[scopeCount++] = handle;
+    }
+
+    /**
+     * @return the same codes as allocateMemory
+     */
+    public int write(int handle, String value){
+        return handles[handle].allocate(value);
+    }
+
+    public Object read(int handle){
+        return handles[handle].read();
+    }
+
+    /*
+     * typed versions of write and read, which do not go through a String
+     */
+
+    public int writeInteger(int handle, int value){
+        return handles[handle].writeInteger(value);
+    }
+
+    public int readInteger(int handle){
+        return handles[handle].readInt();
+    }
+
+    public int writeDouble(int handle, double value){
+        return handles[handle].writeDouble(value);
+    }
+
+    public double readDouble(int handle){
+        return handles[handle].readDouble();
+    }
+
+    public int writeChar(int handle, char value){
+        return handles[handle].writeChar(value);
+    }
+
+    public char readChar(int handle){
+        return handles[handle].readChar();
+    }
+
+    public int writeBoolean(int handle, boolean value){
+        return handles[handle].writeBoolean(value);
+    }
+
+    public boolean readBoolean(int handle){
+        return handles[handle].readBoolean();
+    }
+
+    public void free(int handle){
+        handles[handle].release();
+        keep(handles[handle]);
+        handles[handle] = null;
+
+        if (freeHandleCount == freeHandles.length)
+            freeHandles = Arrays.copyOf(freeHandles, freeHandleCount * 2);
+        freeHandles[freeHandleCount++] = handle;
+    }
+
+    /**
+     * puts data, which holds no bits, with the spare variables
+     */
+    private void keep(Memory data){
+        if (spareCount == spare.length)
+            spare = Arrays.copyOf(spare, spareCount * 2);
+        spare[spareCount++] = data;
+    }
+
+    private String defaultValue(String type){
+        switch (type){
+            case "integer":
+                return "0";
+            case "double":
+                return "0.0";
+            case "char":
+                return " ";
+            case "boolean":
+                return "false";
+            default:
+                return "";
+        }
     }
 
     private class Memory{
         private String type;
-        private int size, memoryStartIndex, offsetIndex;
+        /**where the variable is, -1 until it is first written*/
+        private int size = 0, memoryStartIndex = -1;
+        /**how many names share the variable through allocateMemoryByMemory*/
+        private int references = 1;
 
         public Memory(String type){
-            this.memoryStartIndex = lastMemory;
             this.type = type;
         }
 
         private int allocate(String value){
             switch (type){
                 case "integer":
-                    size = 32;
                     return allocateInteger(value);
                 case "double":
-                    size = 64;
                     return allocateDouble(value);
                 case "char":
-                    size = 16;
                     return allocateChar(value);
                 case "word":
                     return allocateString(value);
                 case "boolean":
-                    size = 1;
                     return allocateBoolean(value);
                 default:
-                    size = 0;
                     return  -2;
             }
         }
@@ -94,12 +322,9 @@ public class RAM
         }
 
         private int allocateInteger(String value) {
-            if (!checkSpace())
-                return -1;
-
             boolean negative = false;
 
-            if (value.charAt(0) == '-'){
+            if (value.length() > 0 && value.charAt(0) == '-'){
                 value = value.substring(1);
                 negative = true;
             }
@@ -107,256 +332,484 @@ public class RAM
             if (!isValidNumber(value, true))
                 return -2;
 
-            StringBuilder binary = new StringBuilder(Integer.toBinaryString(Integer.parseInt(value)));
+            return storeInteger(negative, Integer.parseInt(value));
+        }
 
-            if (binary.length() > 31)
+        private int writeInteger(int value){
+            if (value == Integer.MIN_VALUE)
                 return -2;
 
-            while (binary.length() < 31)
-                binary.insert(0,'0');
-
-            binary.insert(0,negative ? 1:0);
-
-            for (int i = memoryStartIndex; i < memoryStartIndex + 32; i++)
-                memory[i] = binary.charAt(i - memoryStartIndex) != '0';
+            return storeInteger(value < 0, Math.abs(value));
+        }
 
-            if (lastMemory == memoryStartIndex)
-                lastMemory += size;
+        /**
+         * a sign bit, then 31 bits of magnitude
+         */
+        private int storeInteger(boolean negative, int magnitude){
+            if (!place(32))
+                return -1;
 
+            setBits(memoryStartIndex, 32, (negative ? 1L << 31 : 0) | magnitude);
             return 0;
         }
 
+        /**
+         * takes only an optional - and digits with at most one . between them, as Double.parseDouble on its own
+         * would also take NaN, Infinity, hex and a d or f on the end
+         */
         private int allocateDouble(String value) {
-            if (!checkSpace())
-                return -1;
-            else if (value.length() == 0)
+            String[] parts = (value.startsWith("-") ? value.substring(1) : value).split("\\.");
+            if (value.length() == 0 || parts.length > 2)
                 return -2;
 
-            boolean negative = false;
+            for (String part: parts)
+                if (!isValidNumber(part, false))
+                    return -2;
 
-            if (value.charAt(0) == '-') {
-                value = value.substring(1);
-                negative = true;
-            }
+            return writeDouble(Double.parseDouble(value));
+        }
 
-            String[] values = value.split("\\.");
+        /**
+         * the 64 bits of the IEEE 754 double, as is
+         */
+        private int writeDouble(double value){
+            if (!place(64))
+                return -1;
 
-            if (values.length == 1)
-                values = new String[]{values[0],"0"};
+            setBits(memoryStartIndex, 64, Double.doubleToRawLongBits(value));
+            return 0;
+        }
 
-            if (values.length > 2)
+        private int allocateChar(String value) {
+            if (value.length() > 1)
                 return -2;
 
-            for (String data: values){
-                if (!isValidNumber(data, false))
-                    return -2;
-            }
-
-            StringBuilder binary1 = new StringBuilder(Long.toBinaryString(Long.parseLong(values[0])));
-            StringBuilder binary2 = new StringBuilder(Long.toBinaryString(Long.parseLong(values[1])));
+            return writeChar(value.length() == 0 ? ' ' : value.charAt(0));
+        }
 
-            if (binary1.length() + binary2.length() > 63)
+        private int writeChar(char value){
+            if (getCharIndex(value) == -1)
                 return -2;
+            else if (!place(16))
+                return -1;
 
-            int binary1Length = 31;
+            setBits(memoryStartIndex, 16, getCharIndex(value));
+            return 0;
+        }
 
-            if (binary2.length() > 32)
-                binary1Length = 64 - binary2.length() - 1;
+        private int allocateBoolean(String value) {
+            if (!value.equals("true") && !value.equals("false"))
+                return -2;
 
-            while (binary1.length() < binary1Length)
-                binary1.insert(0,'0');
+            return writeBoolean(value.equals("true"));
+        }
 
-            binary1.insert(0, negative ? 1 : 0);
-            binary1Length = binary1.length();
-            offsetIndex = binary1Length;
+        private int writeBoolean(boolean value){
+            if (!place(1))
+                return -1;
 
-            while (binary2.length() < 64 - binary1.length())
-                binary2.insert(0,'0');
+            setBits(memoryStartIndex, 1, value ? 1 : 0);
+            return 0;
+        }
 
-            for (int i = memoryStartIndex; i < memoryStartIndex + binary1Length; i++)
-                memory[i] = binary1.charAt(i - memoryStartIndex) != '0';
+        private int allocateString(String value) {
+            if (value.length() == 0)
+                value += (char) 0;
+
+            for (int i = 0; i < value.length(); i++)
+                if (getCharIndex(value.charAt(i)) == -1)
+                    return -2;
 
-            for (int i = memoryStartIndex + binary1Length; i < memoryStartIndex + 64; i++)
-                memory[i] = binary2.charAt(i - memoryStartIndex - binary1Length) != '0';
+            if (!place(value.length() * 16))
+                return -1;
 
-            if (lastMemory == memoryStartIndex)
-                lastMemory += size;
+            for (int i = 0; i < value.length(); i++)
+                setBits(memoryStartIndex + i * 16, 16, getCharIndex(value.charAt(i)));
 
             return 0;
         }
 
-        private int allocateChar(String value) {
-            if (!checkSpace())
-                return -1;
-            else if (value.length() > 1 || getCharIndex(value.charAt(0)) == -1)
-                return -2;
-            else if (value.length() == 0)
-                value = " ";
+        private int readInt(){
+            int magnitude = (int) getBits(memoryStartIndex + 1, 31);
+            return getBits(memoryStartIndex, 1) == 1 ? -magnitude : magnitude;
+        }
+
+        private double readDouble(){
+            return Double.longBitsToDouble(getBits(memoryStartIndex, 64));
+        }
 
-            StringBuilder charValue = new StringBuilder(Integer.toBinaryString(getCharIndex(value.charAt(0))));
+        private char readChar(){
+            return (char) getBits(memoryStartIndex, 16);
+        }
 
-            while (charValue.length() < 16)
-                charValue.insert(0,'0');
+        private boolean readBoolean(){
+            return getBits(memoryStartIndex, 1) == 1;
+        }
 
-            for (int i = memoryStartIndex; i < memoryStartIndex + 16; i++)
-                memory[i] = charValue.charAt(i - memoryStartIndex) != '0';
+        private String readString(){
+            char[] string = new char[size / 16];
 
-            if (lastMemory == memoryStartIndex)
-                lastMemory += size;
+            for (int i = 0; i < string.length; i++)
+                string[i] = (char) getBits(memoryStartIndex + i * 16, 16);
 
-            return 0;
+            return new String(string);
         }
 
-        private int allocateBoolean(String value) {
-            if (!checkSpace())
-                return -1;
-            else if (!value.equals("true") && !value.equals("false"))
-                return -2;
+        /**
+         * makes sure the variable has newSize bits of its own. a word that shrinks gives back its end,
+         * and one that grows gives back all of its bits and is put somewhere else
+         * @return false if the RAM is full
+         */
+        private boolean place(int newSize){
+            if (memoryStartIndex != -1){
+                if (newSize == size)
+                    return true;
+                else if (newSize < size){
+                    RAM.this.release(memoryStartIndex + newSize, size - newSize);
+                    size = newSize;
+                    return true;
+                }
 
-            memory[memoryStartIndex] = value.equals("true");
+                release();
+            }
 
-            if (lastMemory == memoryStartIndex)
-                lastMemory++;
+            memoryStartIndex = claim(newSize);
+            if (memoryStartIndex == -1)
+                return false;
 
-            return 0;
+            size = newSize;
+            return true;
         }
 
-        private int allocateString(String value) {
-            if (!checkSpace())
-                return -1;
-            if (value.length() == 0)
-                value += (char) 0;
+        /**
+         * gives the bits of the variable back to the RAM
+         */
+        private void release(){
+            if (memoryStartIndex != -1)
+                RAM.this.release(memoryStartIndex, size);
 
-            if (value.length() * 16 > size){
-                memoryStartIndex = lastMemory;
-                size = value.length() * 16;
-                if (memoryStartIndex + size >= memory.length)
-                    reallocate();
-            }
+            memoryStartIndex = -1;
+            size = 0;
+        }
+
+        public String toString(){
+            return type + ":" + size + " [" + memoryStartIndex + "]";
+        }
+    }
 
-            if (value.length() * 16 < size){
-                if (lastMemory == memoryStartIndex + size)
-                    lastMemory -= (size - value.length() * 16);
+    /**
+     * @return the code of c, or -1 if it is not one of the 256 chars the RAM can hold
+     */
+    private int getCharIndex(char c){
+        return c < 256 ? c : -1;
+    }
 
-                size = value.length() * 16;
-            }
+    /**
+     * @return the count (at most 64) bits at start, the first being the most significant
+     */
+    private long getBits(int start, int count){
+        if (count == 0)
+            return 0;
+
+        int word = start >>> 6, offset = start & 63;
+        long value = page(word >>> PAGE_SHIFT)[word & (PAGE_LONGS - 1)] << offset;
 
-            StringBuilder st = new StringBuilder();
+        if (offset + count > 64){
+            word++;
+            value |= page(word >>> PAGE_SHIFT)[word & (PAGE_LONGS - 1)] >>> (64 - offset);
+        }
+
+        return value >>> (64 - count);
+    }
 
-            for (int i = 0; i < value.length(); i++) {
-                st.append(Integer.toBinaryString(getCharIndex(value.charAt(i))));
-                while (st.length() % 16 != 0)
-                    st.insert(i * 16, '0');
+    /**
+     * writes the low count (at most 64) bits of value at start, the most significant first
+     */
+    private void setBits(int start, int count, long value){
+        if (count == 0)
+            return;
+
+        int word = start >>> 6, offset = start & 63;
+        long[] page = page(word >>> PAGE_SHIFT);
+        long mask = -1L >>> (64 - count);
+        int spill = offset + count - 64;
+        value &= mask;
+        word &= PAGE_LONGS - 1;
+
+        if (spill <= 0)
+            page[word] = page[word] & ~(mask << -spill) | value << -spill;
+        else {
+            page[word] = page[word] & ~(mask >>> spill) | value >>> spill;
+
+            if (++word == PAGE_LONGS){
+                page = page(((start >>> 6) + 1) >>> PAGE_SHIFT);
+                word = 0;
             }
+            page[word] = page[word] & ~(-1L << (64 - spill)) | value << (64 - spill);
+        }
+    }
 
-            for (int i = memoryStartIndex; i < memoryStartIndex + size; i++)
-                memory[i] = st.charAt(i - memoryStartIndex) == '1';
+    /*
+     * pages
+     */
 
-            if (lastMemory == memoryStartIndex)
-                lastMemory += size;
+    /**
+     * makes the pages needed to hold the bits before end
+     */
+    private void ensurePages(int end){
+        int needed = (int) (((long) end + PAGE_BITS - 1) / PAGE_BITS);
 
-            return 0;
+        if (needed > pages.length){
+            pages = Arrays.copyOf(pages, Math.max(needed, pages.length * 2));
+            lastUsed = Arrays.copyOf(lastUsed, pages.length);
         }
 
-        private int readInt(){
-            StringBuilder data = new StringBuilder();
+        while (pageCount < needed){
+            long[] page = makeRoom();
+            Arrays.fill(page, 0);
+            pages[pageCount] = page;
+            lastUsed[pageCount++] = ++clock;
+        }
+    }
 
-            for (int i = memoryStartIndex + 1; i < memoryStartIndex + size; i++)
-                data.append(memory[i] ? 1: 0);
+    /**
+     * @return the page at index, swapping it back in if it has been swapped out
+     */
+    private long[] page(int index){
+        long[] page = pages[index];
+
+        if (page == null){
+            page = makeRoom();
+            swap.get(index * PAGE_LONGS, page);
+            pages[index] = page;
+            swapIns++;
+        }
 
-            if (memory[memoryStartIndex])
-                data.insert(0,"-");
+        if (swap != null)
+            lastUsed[index] = ++clock;
+        return page;
+    }
 
-            return Integer.parseInt(data.toString(), 2);
+    /**
+     * counts one more page as being in the heap, swapping out the least recently used page if there are too many
+     * @return an array for the page to use, which may still hold the old page
+     */
+    private long[] makeRoom(){
+        if (residentCount < residentLimit){
+            residentCount++;
+            return new long[PAGE_LONGS];
         }
 
-        private double readDouble(){
-            StringBuilder data1 = new StringBuilder();
-            StringBuilder data2 = new StringBuilder();
+        int oldest = -1;
+        for (int i = 0; i < pageCount; i++)
+            if (pages[i] != null && (oldest == -1 || lastUsed[i] < lastUsed[oldest]))
+                oldest = i;
+
+        long[] page = pages[oldest];
+        swap.put(oldest * PAGE_LONGS, page);
+        pages[oldest] = null;
+        swapOuts++;
+        return page;
+    }
 
-            for (int i = memoryStartIndex + 1; i < memoryStartIndex + offsetIndex; i++)
-                data1.append(memory[i] ? 1: 0);
+    /**
+     * lets only residentPages pages stay in the heap. the least recently used of the rest are written to file,
+     * which is mapped into memory with room for every page the limit allows
+     */
+    public void swapTo(Path file, int residentPages) throws IOException {
+        if (residentPages < 2)
+            throw new IllegalArgumentException("at least 2 pages have to stay in the heap");
 
-            for (int i = memoryStartIndex + offsetIndex; i < memoryStartIndex + size; i++)
-                data2.append(memory[i] ? 1: 0);
+        long size = ((long) limit + PAGE_BITS - 1) / PAGE_BITS * PAGE_LONGS * 8;
 
-            long part1 = Long.parseLong(data1.toString(),2);
-            long part2 = Long.parseLong(data2.toString(),2);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)){
+            swap = channel.map(FileChannel.MapMode.READ_WRITE, 0, size).asLongBuffer();
+        }
 
-            StringBuilder combined = new StringBuilder(part1 + "." + part2);
+        residentLimit = residentPages;
+        while (residentCount > residentLimit){
+            residentCount--;
+            makeRoom();
+        }
+    }
 
-            if (memory[memoryStartIndex])
-                combined.insert(0,"-");
+    /**
+     * @return how much of the RAM is used, and how much paging it has done
+     */
+    public String stats(){
+        return lastMemory + " of " + limit + " bits used, " + pageCount + " pages (" + residentCount + " in the heap), "
+                + swapIns + " swapped in, " + swapOuts + " swapped out";
+    }
 
-            return Double.parseDouble(combined.toString());
+    /*
+     * the allocator
+     */
+
+    /**
+     * @return which free list blocks of size go in, or -1 if they go in freeRegions
+     */
+    private static int sizeClass(int size){
+        switch (size){
+            case 1:
+                return 0;
+            case 16:
+                return 1;
+            case 32:
+                return 2;
+            case 64:
+                return 3;
+            default:
+                return -1;
         }
+    }
 
-        private char readChar(){
-            StringBuilder data1 = new StringBuilder();
+    /**
+     * finds size free bits: a freed block of the same size class, then a freed region, then the end of
+     * the used bits. only if none of those fit are the free lists merged into regions, and only after that
+     * is every variable moved down to close the gaps
+     * @return the start of the bits, or -1 if the RAM is full
+     */
+    private int claim(int size){
+        int sizeClass = sizeClass(size);
 
-            for (int i = memoryStartIndex; i < memoryStartIndex + size; i++)
-                data1.append(memory[i] ? 1:0);
+        if (sizeClass != -1 && freeBlockCount[sizeClass] > 0)
+            return freeBlocks[sizeClass][--freeBlockCount[sizeClass]];
 
+        int start = claimRegion(size);
+        if (start != -1)
+            return start;
 
-            return (char) Integer.parseInt(data1.toString(),2);
-        }
+        if ((long) lastMemory + size > limit){
+            mergeFreeBlocks();
 
-        private boolean readBoolean(){
-            return memory[memoryStartIndex];
+            start = claimRegion(size);
+            if (start != -1)
+                return start;
+
+            if ((long) lastMemory + size > limit)
+                compact();
+            if ((long) lastMemory + size > limit)
+                return -1;
         }
 
-        private String readString(){
-            StringBuilder string = new StringBuilder();
+        start = lastMemory;
+        lastMemory += size;
+        ensurePages(lastMemory);
+        return start;
+    }
 
-            for (int i = 0; i < size / 16; i++) {
-                StringBuilder data1 = new StringBuilder();
+    /**
+     * takes size bits from the front of the smallest freed region big enough, the first of them if there are
+     * several, in log time however many regions there are
+     * @return the start of the bits, or -1 if no region is big enough
+     */
+    private int claimRegion(int size){
+        Map.Entry<Integer, TreeSet<Integer>> fit = regionsBySize.ceilingEntry(size);
+        if (fit == null)
+            return -1;
+
+        int start = fit.getValue().first(), regionSize = fit.getKey();
+        removeRegion(start);
+        if (regionSize > size)
+            putRegion(start + size, regionSize - size);
+        return start;
+    }
 
-                for (int j = memoryStartIndex + i*16; j < memoryStartIndex + (i+1) * 16; j++)
-                    data1.append(memory[j] ? 1 : 0);
+    private void putRegion(int start, int size){
+        freeRegions.put(start, size);
+        regionsBySize.computeIfAbsent(size, key -> new TreeSet<>()).add(start);
+    }
 
-                string.append((char)Integer.parseInt(data1.toString(),2));
-            }
+    /**
+     * @return the size of the region that started at start
+     */
+    private int removeRegion(int start){
+        int size = freeRegions.remove(start);
+        TreeSet<Integer> starts = regionsBySize.get(size);
+        starts.remove(start);
+        if (starts.isEmpty())
+            regionsBySize.remove(size);
+        return size;
+    }
 
-            return string.toString();
+    private void release(int start, int size){
+        int sizeClass = sizeClass(size);
+
+        if (sizeClass == -1)
+            addRegion(start, size);
+        else {
+            if (freeBlockCount[sizeClass] == freeBlocks[sizeClass].length)
+                freeBlocks[sizeClass] = Arrays.copyOf(freeBlocks[sizeClass], freeBlockCount[sizeClass] * 2);
+            freeBlocks[sizeClass][freeBlockCount[sizeClass]++] = start;
         }
+    }
 
-        private boolean checkSpace(){
-            if (memoryStartIndex != lastMemory - size && lastMemory + size > memory.length) {
-                reallocate();
-                memoryStartIndex = lastMemory;
+    /**
+     * frees a region, merging it with the free regions either side of it. a region that ends
+     * at lastMemory is given back to the end instead
+     */
+    private void addRegion(int start, int size){
+        Map.Entry<Integer, Integer> before = freeRegions.floorEntry(start);
 
-                if (memoryStartIndex + size > memory.length)
-                    return false;
-            }
-            return true;
+        if (before != null && before.getKey() + before.getValue() == start){
+            start = before.getKey();
+            size += removeRegion(start);
         }
 
-        public String toString(){
-            return type + ":" + size + " [" + memoryStartIndex + (offsetIndex == 0 ? "": "-" + offsetIndex) + "]";
-        }
+        if (freeRegions.containsKey(start + size))
+            size += removeRegion(start + size);
+
+        if (start + size == lastMemory)
+            lastMemory = start;
+        else
+            putRegion(start, size);
     }
 
-    private int getCharIndex(char c){
-        for (int i = 0; i < asciiTable.length; i++)
-            if (asciiTable[i] == c)
-                return i;
+    /**
+     * moves every block on the free lists into freeRegions, so neighbouring blocks can be merged
+     */
+    private void mergeFreeBlocks(){
+        for (int sizeClass = 0; sizeClass < freeBlocks.length; sizeClass++){
+            for (int i = 0; i < freeBlockCount[sizeClass]; i++)
+                addRegion(freeBlocks[sizeClass][i], SIZE_CLASSES[sizeClass]);
 
-        return -1;
+            freeBlockCount[sizeClass] = 0;
+        }
     }
-    
-    private void reallocate(){
-        boolean[] memoryCopy = new boolean[memory.length];
-        int tempLastIndex = 0;
 
-        for (String name: buckets.keySet()){
-            Memory data = buckets.get(name);
-            System.arraycopy(memory, data.memoryStartIndex + tempLastIndex - tempLastIndex, memoryCopy, tempLastIndex, tempLastIndex + data.size - tempLastIndex);
-            data.memoryStartIndex = tempLastIndex;
-            tempLastIndex += data.size;
+    /**
+     * slides every variable down over the free bits before it, in place, leaving all free bits at the end
+     */
+    private void compact(){
+        ArrayList<Memory> live = new ArrayList<>();
+        for (int i = 0; i < handleCount; i++)
+            if (handles[i] != null && handles[i].memoryStartIndex != -1)
+                live.add(handles[i]);
+
+        live.sort(Comparator.comparingInt(data -> data.memoryStartIndex));
+        int end = 0;
+
+        for (Memory data: live){
+            for (int i = 0; i < data.size; i += 64){
+                int count = Math.min(64, data.size - i);
+                setBits(end + i, count, getBits(data.memoryStartIndex + i, count));
+            }
+
+            data.memoryStartIndex = end;
+            end += data.size;
         }
 
-        memory = memoryCopy;
-        lastMemory = tempLastIndex;
+        Arrays.fill(freeBlockCount, 0);
+        freeRegions.clear();
+        regionsBySize.clear();
+        lastMemory = end;
+
+        int needed = (int) (((long) end + PAGE_BITS - 1) / PAGE_BITS);
+        while (pageCount > needed){
+            if (pages[--pageCount] != null)
+                residentCount--;
+            pages[pageCount] = null;
+        }
     }
 
     private boolean isValidNumber(String value, boolean isInt){
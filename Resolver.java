@@ -0,0 +1,64 @@
+import java.util.ArrayList;
+
+/**
+ * gives every variable a place once, before anything runs: universal variables an index into the
+ * universal table, and everything else a slot in the frame of its command. commands cannot be declared
+ * inside each other, so those two are the only places a variable can be and nothing is looked up by name
+ */
+public class Resolver
+{
+    /**the frame being laid out*/
+    private ArrayList<Node.Symbol> frame;
+
+    void resolve(Node.Program program){
+        for (int i = 0; i < program.globals.size(); i++)
+            program.globals.get(i).symbol.slot = i;
+
+        for (Node.Command command: program.commands.values())
+            resolve(command);
+    }
+
+    /**
+     * lays out the frame of command: parameters first, then its variables as they are declared
+     */
+    void resolve(Node.Command command){
+        frame = new ArrayList<>();
+
+        for (Node.Symbol param: command.params)
+            declare(param);
+
+        if (command.body != null)
+            statement(command.body);
+
+        command.frame = frame;
+    }
+
+    private void declare(Node.Symbol symbol){
+        symbol.slot = frame.size();
+        frame.add(symbol);
+    }
+
+    private void statement(Node.Statement statement){
+        if (statement instanceof Node.Block){
+            for (Node.Statement inner: ((Node.Block) statement).statements)
+                statement(inner);
+        }
+        else if (statement instanceof Node.Declare)
+            declare(((Node.Declare) statement).symbol);
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+            statement(ifStatement.then);
+            if (ifStatement.otherwise != null)
+                statement(ifStatement.otherwise);
+        }
+        else if (statement instanceof Node.While)
+            statement(((Node.While) statement).body);
+        else if (statement instanceof Node.DoWhile)
+            statement(((Node.DoWhile) statement).body);
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            statement(loop.init);
+            statement(loop.body);
+        }
+    }
+}
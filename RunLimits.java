@@ -0,0 +1,25 @@
+/**
+ * how far a run of a program may go before it is stopped: how many instructions it may take and how long.
+ * they are checked at safepoints (see Opcode.SAFEPOINT), so a run may go a loop or so past them before it fails
+ * with "out of steps" or "out of time". a run of the tree has no instructions, so there each safepoint is a step
+ * (see Safepoints)
+ */
+public final class RunLimits
+{
+    /**no limits at all*/
+    public static final RunLimits NONE = new RunLimits(0, 0);
+
+    /**the most instructions, or Long.MAX_VALUE for any number*/
+    final long maxSteps;
+    /**the most nanoseconds, or 0 for as long as it takes*/
+    final long timeout;
+
+    /**
+     * @param maxSteps the most instructions a run may take, or 0 for any number
+     * @param timeoutMillis the most milliseconds a run may take from when it starts, or 0 for as long as it takes
+     */
+    public RunLimits(long maxSteps, long timeoutMillis){
+        this.maxSteps = maxSteps > 0 ? maxSteps : Long.MAX_VALUE;
+        this.timeout = Math.max(timeoutMillis, 0) * 1000000;
+    }
+}
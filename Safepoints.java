@@ -0,0 +1,42 @@
+/**
+ * the RunLimits of a run that walks the tree instead of running bytecode (the Interpreter and the closure tiers),
+ * checked at the same places the BytecodeCompiler puts a SAFEPOINT: as every command starts and before every
+ * loop's condition. here a step is one of those rather than an instruction, and the clock is only looked at
+ * once every POLL of them
+ */
+final class Safepoints
+{
+    /**how many safepoints go by between looks at the clock*/
+    private static final int POLL = 1024;
+
+    /**how many more safepoints the run may pass*/
+    private long stepsLeft;
+    /**the System.nanoTime the run has to be finished by, if it has to be*/
+    private final long deadline;
+    private final boolean timed;
+    private int untilClock = POLL;
+
+    /**
+     * starts the clock on a run under limits
+     */
+    Safepoints(RunLimits limits){
+        this.stepsLeft = limits.maxSteps;
+        this.timed = limits.timeout > 0;
+        this.deadline = System.nanoTime() + limits.timeout;
+    }
+
+    /**
+     * passes a safepoint, failing the run if it is out of steps or time
+     * @param line the (zero based) line of the safepoint
+     */
+    void poll(int line){
+        if (--stepsLeft < 0)
+            throw new ProgramException(line, "out of steps");
+
+        if (timed && --untilClock == 0){
+            untilClock = POLL;
+            if (System.nanoTime() - deadline >= 0)
+                throw new ProgramException(line, "out of time");
+        }
+    }
+}
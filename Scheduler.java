@@ -0,0 +1,70 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * time slices many runs over a few threads. each thread runs an Execution for one slice, until its next safepoint
+ * after that, then puts it at the back of the queue and takes the one at the front, so however many runs loop forever,
+ * every other run still gets a slice in turn and finishes in about as long as it would have anyway
+ */
+public class Scheduler implements AutoCloseable
+{
+    /**the threads, which take the runs in the order they were queued*/
+    private final ExecutorService pool;
+    /**how long a run goes before the next one gets a turn*/
+    private final long slice;
+    /**how many runs are not over, and whether no more will be taken. submit and close hold the scheduler's lock,
+     * so a run is never queued after the threads have been shut down*/
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * @param threads how many runs go at once
+     * @param sliceMillis how many milliseconds a run goes before it lets the next one have a turn
+     */
+    public Scheduler(int threads, long sliceMillis){
+        this.pool = Executors.newFixedThreadPool(threads);
+        this.slice = Math.max(sliceMillis, 1) * 1000000;
+    }
+
+    /**
+     * queues a run of program under the limits it was compiled with
+     * @return the run, to wait for or cancel
+     */
+    public Execution submit(CompiledProgram program, OutputSink sink){
+        return submit(program, sink, program.limits());
+    }
+
+    /**
+     * queues a run of program, handing its output to sink a slice at a time
+     * @return the run, to wait for or cancel
+     */
+    public synchronized Execution submit(CompiledProgram program, OutputSink sink, RunLimits limits){
+        if (closed)
+            throw new IllegalStateException("the scheduler is closed");
+
+        Execution execution = program.execution(sink, limits);
+        running.incrementAndGet();
+        queue(execution);
+        return execution;
+    }
+
+    private void queue(Execution execution){
+        pool.execute(() -> {
+            if (!execution.slice(slice))
+                queue(execution);
+            else if (running.decrementAndGet() == 0 && closed)
+                pool.shutdown();
+        });
+    }
+
+    /**
+     * lets the runs already queued finish, but takes no more
+     */
+    @Override
+    public synchronized void close(){
+        closed = true;
+        if (running.get() == 0)
+            pool.shutdown();
+    }
+}
@@ -0,0 +1,95 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * runs CompiledPrograms for a service, every run on a thread of its own: a virtual thread where the JVM has them
+ * (Java 21 on), otherwise one of a pool of platform threads. a run never waits on anything and hands its output to
+ * an OutputSink that must not block either, so however many runs there are at once, they share as many carrier
+ * threads as there are cores
+ */
+public class ScriptHost implements AutoCloseable
+{
+    private final ExecutorService executor;
+    /**whether the runs are on virtual threads*/
+    private final boolean virtual;
+
+    /**
+     * runs every program on a virtual thread, or on a thread per core if the JVM has no virtual threads
+     */
+    public ScriptHost(){
+        this(true, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param virtual whether to run every program on a virtual thread, if the JVM has them
+     * @param threads how many platform threads to run on otherwise
+     */
+    public ScriptHost(boolean virtual, int threads){
+        ExecutorService virtualThreads = virtual ? virtualThreads() : null;
+        this.virtual = virtualThreads != null;
+        this.executor = virtualThreads != null ? virtualThreads : Executors.newFixedThreadPool(threads);
+    }
+
+    /**
+     * @return an executor that starts a virtual thread for every task, or null if the JVM is too old to have them.
+     *         it is found by reflection so the code still compiles and runs on Java 17
+     */
+    private static ExecutorService virtualThreads(){
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e){
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the runs are on virtual threads
+     */
+    public boolean isVirtual(){
+        return virtual;
+    }
+
+    /**
+     * @return the executor the runs are on, for running other work the same way
+     */
+    ExecutorService executor(){
+        return executor;
+    }
+
+    /**
+     * starts a run of program
+     * @return what it output, or a ProgramException if it went wrong
+     */
+    public CompletableFuture<String> submit(CompiledProgram program){
+        return CompletableFuture.supplyAsync(program::run, executor);
+    }
+
+    /**
+     * starts a run of program, handing its output to sink as it goes
+     * @return when it has finished, or a ProgramException if it went wrong
+     */
+    public CompletableFuture<Void> submit(CompiledProgram program, OutputSink sink){
+        return CompletableFuture.runAsync(() -> program.run(sink), executor);
+    }
+
+    /**
+     * starts a run of program under limits, handing its output to sink as it goes
+     * @return the run, to wait for or cancel
+     */
+    public Execution submit(CompiledProgram program, OutputSink sink, RunLimits limits){
+        Execution execution = program.execution(sink, limits);
+        executor.execute(() -> execution.slice(0));
+        return execution;
+    }
+
+    /**
+     * lets the runs already started finish, but starts no more
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * where the code of a program comes from: a file, read through a FileChannel a block at a time and decoded as it goes,
+ * or text already in memory. the Lexer reads it a character at a time, so however long the program is,
+ * only one block of it is in memory and no line of it is ever kept as a String
+ */
+public class Source implements Closeable
+{
+    /**how many bytes (and chars) are read at a time*/
+    private static final int BLOCK = 1 << 16;
+
+    /**what the code is called, for naming what is made from it*/
+    final String name;
+
+    /**the file being read and its decoder, or null for text in memory*/
+    private FileChannel channel;
+    private CharsetDecoder decoder;
+    private ByteBuffer bytes;
+    /**the characters decoded and not yet read*/
+    private CharBuffer chars;
+    /**whether everything has been decoded*/
+    private boolean finished = false;
+
+    private Source(String name){
+        this.name = name;
+    }
+
+    /**
+     * @return the code in file, read as it is needed in the default charset
+     * @throws IOException if the file cannot be opened
+     */
+    static Source file(Path file) throws IOException {
+        Source source = new Source(file.toString());
+        source.channel = FileChannel.open(file, StandardOpenOption.READ);
+        source.decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        source.bytes = ByteBuffer.allocateDirect(BLOCK);
+        source.chars = CharBuffer.allocate(BLOCK);
+        source.chars.flip();
+        return source;
+    }
+
+    /**
+     * @param name what the code is called
+     * @return code that is already in memory, such as a String or a CharBuffer
+     */
+    static Source text(String name, CharSequence code){
+        Source source = new Source(name);
+        source.chars = CharBuffer.wrap(code);
+        source.finished = true;
+        return source;
+    }
+
+    /**
+     * @return the SHA-256 hash of the code, for the BytecodeCache. it must be called before anything is read
+     * @throws IOException if the file cannot be read
+     */
+    byte[] hash() throws IOException {
+        MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e){
+            throw new IOException(e);
+        }
+
+        if (channel == null){
+            digest.update(StandardCharsets.UTF_8.encode(chars.duplicate()));
+            return digest.digest();
+        }
+
+        // the file is read through once for the hash, then from the start again for the Lexer
+        while (channel.read(bytes) != -1){
+            bytes.flip();
+            digest.update(bytes);
+            bytes.clear();
+        }
+
+        channel.position(0);
+        return digest.digest();
+    }
+
+    /**
+     * @return the next character, or -1 at the end of the code
+     * @throws IOException if the file cannot be read
+     */
+    int read() throws IOException {
+        if (!chars.hasRemaining() && !fill())
+            return -1;
+        return chars.get();
+    }
+
+    /**
+     * decodes the next block of the file into chars
+     * @return whether there is anything to read
+     */
+    private boolean fill() throws IOException {
+        if (finished)
+            return false;
+
+        chars.clear();
+
+        while (chars.position() == 0 && !finished){
+            boolean end = channel.read(bytes) == -1;
+            bytes.flip();
+            decoder.decode(bytes, chars, end);
+            bytes.compact();
+
+            if (end && bytes.position() == 0){
+                decoder.flush(chars);
+                finished = true;
+            }
+        }
+
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null)
+            channel.close();
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * tiered execution for the closure tier. every command starts out as closures, which cost next to nothing to make,
+ * and counts its calls and the times round its loops. once either gets to its threshold the command is hot: the
+ * JvmCompiler compiles it into a hidden class on a thread of its own, and the calls after that go to the class.
+ * compiled commands call each other straight through the JVM, so a hot recursive helper runs as fast as in a jar.
+ * only commands that use no universal variables, output nothing and call only commands like them are compiled. their
+ * variables are JVM locals, but every call still takes their room in the RAM and is counted and polled through the
+ * Run, so a compiled command runs out of memory, stops at 500 deep and runs out of steps where closures would.
+ * each change of tier is logged
+ */
+final class Tiers
+{
+    /**how many calls, or times round its loops, make a command hot*/
+    static final int CALLS = 1000, BACK_EDGES = 10000;
+    private static final MethodType BRIDGE = MethodType.methodType(void.class, ClosureCompiler.Run.class, int[].class);
+
+    private final int calls, backEdges;
+    /**where the changes of tier are written, or null*/
+    private final PrintStream log;
+    /**
+     * the thread the hot commands are compiled on, so the program does not wait for them. one is shared by every run,
+     * as a run has no end the Tiers could shut a thread of its own down at
+     */
+    private static final ExecutorService compiler = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "tiers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param log where to write each change of tier, or null
+     */
+    Tiers(PrintStream log){
+        this(CALLS, BACK_EDGES, log);
+    }
+
+    /**
+     * @param calls how many calls make a command hot
+     * @param backEdges how many times round its loops make a command hot
+     * @param log where to write each change of tier, or null
+     */
+    Tiers(int calls, int backEdges, PrintStream log){
+        this.calls = calls;
+        this.backEdges = backEdges;
+        this.log = log;
+    }
+
+    /**
+     * runs callee, with its variables at slots, in whichever tier it is in
+     * @return what running its body did, which is GIVE for a compiled command as it checks that itself
+     */
+    int call(ClosureCompiler.Callee callee, ClosureCompiler.Run run, int[] slots){
+        MethodHandle compiled = callee.compiled;
+
+        if (compiled != null){
+            try {
+                compiled.invokeExact(run, slots);
+            } catch (RuntimeException | Error e){
+                throw e;
+            } catch (Throwable e){
+                throw new IllegalStateException(e);
+            }
+            return ClosureCompiler.GIVE;
+        }
+
+        if (++callee.calls == calls)
+            hot(callee, calls + " calls");
+        return callee.body.exec(new ClosureCompiler.Frame(run, slots));
+    }
+
+    /**
+     * called each time round a loop of callee
+     */
+    void loop(ClosureCompiler.Callee callee){
+        if (++callee.backEdges == backEdges)
+            hot(callee, backEdges + " times round its loops");
+    }
+
+    private void hot(ClosureCompiler.Callee callee, String why){
+        synchronized (callee){
+            if (callee.hot)
+                return;
+            callee.hot = true;
+        }
+
+        compiler.execute(() -> compile(callee, why));
+    }
+
+    /**
+     * compiles callee, and every command it calls, into a hidden class and swaps it in
+     */
+    private void compile(ClosureCompiler.Callee callee, String why){
+        Node.Command command = callee.command;
+        long start = System.nanoTime();
+        Set<Node.Command> commands = new LinkedHashSet<>();
+        String reason = reason(command, commands);
+
+        if (reason != null){
+            log(command.name + " is hot after " + why + ", but stays in closures: " + reason);
+            return;
+        }
+
+        try {
+            byte[] classFile = new JvmCompiler("Hot$" + command.name, "JitSupport").compileHot(command, commands);
+            MethodHandles.Lookup hidden = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            callee.compiled = hidden.findStatic(hidden.lookupClass(), JvmCompiler.BRIDGE, BRIDGE);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e){
+            log(command.name + " is hot after " + why + ", but stays in closures: " + e);
+            return;
+        }
+
+        int others = commands.size() - 1;
+        log(command.name + " is hot after " + why + ", compiled to the JVM in " + (System.nanoTime() - start) / 1000 + "us"
+                + (others == 0 ? "" : " with the " + others + (others == 1 ? " command" : " commands") + " it calls"));
+    }
+
+    private void log(String message){
+        if (log != null)
+            log.println("tiers: " + message);
+    }
+
+    /*
+     * which commands can be compiled
+     */
+
+    /**
+     * @return why command cannot be compiled, or null if it can, adding it and every command it calls to commands
+     */
+    private static String reason(Node.Command command, Set<Node.Command> commands){
+        if (!commands.add(command))
+            return null;
+        if (command.body == null)
+            return command.name + " has no body";
+        return reason(command.body, commands);
+    }
+
+    private static String reason(Node.Statement statement, Set<Node.Command> commands){
+        if (statement == null)
+            return null;
+
+        if (statement instanceof Node.Block){
+            for (Node.Statement inner: ((Node.Block) statement).statements){
+                String reason = reason(inner, commands);
+                if (reason != null)
+                    return reason;
+            }
+            return null;
+        }
+        else if (statement instanceof Node.Declare)
+            return reason(((Node.Declare) statement).value, commands);
+        else if (statement instanceof Node.Assign){
+            Node.Assign assign = (Node.Assign) statement;
+            String reason = reason(assign.target, commands);
+            return reason != null ? reason : reason(assign.value, commands);
+        }
+        else if (statement instanceof Node.Output)
+            return "it outputs at line " + (statement.line + 1);
+        else if (statement instanceof Node.If){
+            Node.If ifStatement = (Node.If) statement;
+            return first(reason(ifStatement.condition, commands), reason(ifStatement.then, commands),
+                    reason(ifStatement.otherwise, commands));
+        }
+        else if (statement instanceof Node.While){
+            Node.While loop = (Node.While) statement;
+            return first(reason(loop.condition, commands), reason(loop.body, commands), null);
+        }
+        else if (statement instanceof Node.DoWhile){
+            Node.DoWhile loop = (Node.DoWhile) statement;
+            return first(reason(loop.body, commands), reason(loop.condition, commands), null);
+        }
+        else if (statement instanceof Node.For){
+            Node.For loop = (Node.For) statement;
+            return first(first(reason(loop.init, commands), reason(loop.condition, commands), null),
+                    reason(loop.update, commands), reason(loop.body, commands));
+        }
+        else if (statement instanceof Node.Give)
+            return reason(((Node.Give) statement).value, commands);
+        else if (statement instanceof Node.CallStatement)
+            return reason(((Node.CallStatement) statement).call, commands);
+        return null;
+    }
+
+    private static String reason(Node.Expression expression, Set<Node.Command> commands){
+        if (expression == null || expression instanceof Node.Literal)
+            return null;
+        else if (expression instanceof Node.Variable){
+            Node.Symbol symbol = ((Node.Variable) expression).symbol;
+            return symbol.global ? "it uses the universal variable " + symbol.name + " at line " + (expression.line + 1) : null;
+        }
+        else if (expression instanceof Node.Unary)
+            return reason(((Node.Unary) expression).operand, commands);
+        else if (expression instanceof Node.Binary){
+            Node.Binary binary = (Node.Binary) expression;
+            return first(reason(binary.left, commands), reason(binary.right, commands), null);
+        }
+
+        Node.Call call = (Node.Call) expression;
+        for (Node.Expression argument: call.arguments){
+            String reason = reason(argument, commands);
+            if (reason != null)
+                return reason;
+        }
+
+        String reason = reason(call.command, commands);
+        return reason != null ? "it calls " + call.command.name + ", and " + reason : null;
+    }
+
+    /**
+     * @return the first reason that is not null
+     */
+    private static String first(String a, String b, String c){
+        return a != null ? a : b != null ? b : c;
+    }
+}
@@ -0,0 +1,684 @@
+import java.util.Arrays;
+
+/**
+ * runs Bytecode on a stack, one instruction at a time, with every variable kept in the RAM
+ */
+public class VirtualMachine
+{
+    private Bytecode program;
+    private int[] code;
+    private RAM memory;
+    /**how much output is collected before it is handed to the sink, and the line separator*/
+    private static final int CHUNK = 8192;
+    private static final String NEWLINE = System.lineSeparator();
+
+    /**where the program outputs to, and the output not yet handed to it*/
+    private OutputSink sink;
+    private StringBuilder output = new StringBuilder();
+
+    /**the stack: numbers, chars and booleans in stack, words in words at the same index*/
+    private long[] stack = new long[256];
+    private String[] words = new String[256];
+    private int sp = 0;
+
+    /**the handles of the universal variables*/
+    private int[] globals;
+    /**the handles of the variables of every running command, each frame straight after its caller's*/
+    private int[] slots = new int[256];
+    /**where the frame of the running command starts, and where the next one will*/
+    private int fp = 0, frameTop = 0;
+    /**
+     * the call stack, one entry per running command from the outermost: its method, the RAM mark that
+     * frees its variables, the pc to go back to, and its caller's fp. it is kept off the Java stack, so recursion
+     * goes as deep as the memory limit lets the frames go, up to MAX_DEPTH
+     */
+    private Bytecode.Method[] methods = new Bytecode.Method[64];
+    private int[] marks = new int[64], returnAddresses = new int[64], callerFps = new int[64];
+    private int depth = 0;
+    /**the most commands that may be running at once, so a command with no variables cannot recurse forever*/
+    static final int MAX_DEPTH = 1 << 20;
+    /**the running command*/
+    private Bytecode.Method method;
+    /**the instruction being run, for error messages*/
+    private int pc = 0, opPc = 0;
+
+    /**how many instructions go by between checks of the limits at safepoints*/
+    private static final int POLL = 1024;
+    /**how many more instructions the run may take*/
+    private long stepsLeft = Long.MAX_VALUE;
+    /**the System.nanoTime the run has to be finished by, and that its time slice ends at, if it has them*/
+    private long deadline, sliceEnd;
+    private boolean timed = false, sliced = false;
+    /**set from another thread to stop the run at its next safepoint*/
+    private volatile boolean cancelled = false;
+
+    VirtualMachine(Bytecode program){
+        this(program, new RAM());
+    }
+
+    /**
+     * @param memory where the variables are kept, made with the memory limit wanted
+     */
+    VirtualMachine(Bytecode program, RAM memory){
+        this(program, memory, OutputSink.of(System.out));
+    }
+
+    /**
+     * @param sink where the program outputs to
+     */
+    VirtualMachine(Bytecode program, RAM memory, OutputSink sink){
+        this.program = program;
+        this.code = program.code;
+        this.memory = memory;
+        this.sink = sink;
+    }
+
+    void run(){
+        start();
+        resume(0);
+    }
+
+    /**
+     * @param steps the most instructions the run may take
+     * @param timeout the most nanoseconds it may take from now, or 0 for as long as it likes
+     */
+    void limit(long steps, long timeout){
+        stepsLeft = steps;
+        timed = timeout > 0;
+        deadline = System.nanoTime() + timeout;
+    }
+
+    /**
+     * stops the run at its next safepoint, from any thread. it fails as "cancelled"
+     */
+    void cancel(){
+        cancelled = true;
+    }
+
+    /**
+     * sets up the universal variables and the frame of the set up method, ready to resume
+     */
+    void start(){
+        globals = new int[program.globalTypes.length];
+        for (int i = 0; i < globals.length; i++)
+            globals[i] = allocate(program.globalTypes[i]);
+
+        pushFrame(program.entry(), -1);
+        pc = program.entry().entry;
+        ensureCapacity(program.entry());
+    }
+
+    /**
+     * runs from where the program was left until it finishes or, once slice nanoseconds have gone by,
+     * it reaches a safepoint, handing over its output either way
+     * @param slice how long to run for, or 0 to run to the end
+     * @return whether the program has finished
+     */
+    boolean resume(long slice){
+        sliced = slice > 0;
+        sliceEnd = System.nanoTime() + slice;
+
+        try {
+            return execute();
+        } finally {
+            // what was output before an error is handed over before the error is thrown on
+            flush();
+        }
+    }
+
+    /**
+     * checks the limits of the run, once POLL instructions have gone by since the last check
+     * @return false if its time slice is over, so it should pause
+     */
+    private boolean safepoint(){
+        if (cancelled)
+            exception("cancelled");
+        if (stepsLeft <= 0)
+            exception("out of steps");
+
+        if (timed || sliced){
+            long now = System.nanoTime();
+            if (timed && now - deadline >= 0)
+                exception("out of time");
+            return !sliced || now - sliceEnd < 0;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return how many instructions can go by before the limits are checked again
+     */
+    private int untilCheck(){
+        return (int) Math.min(POLL, stepsLeft);
+    }
+
+    /**
+     * hands the output to the sink once there is a chunk of it
+     */
+    private void written(){
+        if (output.length() >= CHUNK)
+            flush();
+    }
+
+    /**
+     * hands what has been output so far to the sink
+     */
+    private void flush(){
+        if (output.length() > 0){
+            sink.write(output.toString());
+            output.setLength(0);
+        }
+    }
+
+    private void exception(String string){
+        throw new ProgramException(program.lines[opPc], string);
+    }
+
+    private void expected(String given, String string){
+        exception("\"" + given + "\" given \"" + string + "\" expected");
+    }
+
+    /**
+     * the dispatch loop
+     * @return whether the program has finished, rather than pausing at a safepoint
+     */
+    private boolean execute(){
+        int[] code = this.code;
+        // the instructions run since the limits were last checked, and how many may be before they are again
+        int steps = 0, check = untilCheck();
+
+        while (true){
+            opPc = pc;
+            steps++;
+
+            switch (code[pc++]){
+                case Opcode.CONST_INT:
+                    stack[sp++] = code[pc++];
+                    break;
+                case Opcode.CONST_DOUBLE:
+                    stack[sp++] = Double.doubleToRawLongBits((double) program.constants[code[pc++]]);
+                    break;
+                case Opcode.CONST_WORD:
+                    words[sp++] = (String) program.constants[code[pc++]];
+                    break;
+
+                case Opcode.LOAD_INT:
+                    stack[sp++] = memory.readInteger(slots[fp + code[pc++]]);
+                    break;
+                case Opcode.LOAD_DOUBLE:
+                    stack[sp++] = Double.doubleToRawLongBits(memory.readDouble(slots[fp + code[pc++]]));
+                    break;
+                case Opcode.LOAD_CHAR:
+                    stack[sp++] = memory.readChar(slots[fp + code[pc++]]);
+                    break;
+                case Opcode.LOAD_BOOLEAN:
+                    stack[sp++] = memory.readBoolean(slots[fp + code[pc++]]) ? 1 : 0;
+                    break;
+                case Opcode.LOAD_WORD:
+                    words[sp++] = (String) memory.read(slots[fp + code[pc++]]);
+                    break;
+
+                case Opcode.STORE_INT: {
+                    int slot = code[pc++];
+                    stored(memory.writeInteger(slots[fp + slot], (int) stack[--sp]), method.slotNames[slot], "integer");
+                    break;
+                }
+                case Opcode.STORE_DOUBLE: {
+                    int slot = code[pc++];
+                    stored(memory.writeDouble(slots[fp + slot], getDouble(--sp)), method.slotNames[slot], "double");
+                    break;
+                }
+                case Opcode.STORE_CHAR: {
+                    int slot = code[pc++];
+                    stored(memory.writeChar(slots[fp + slot], (char) stack[--sp]), method.slotNames[slot], "char");
+                    break;
+                }
+                case Opcode.STORE_BOOLEAN: {
+                    int slot = code[pc++];
+                    stored(memory.writeBoolean(slots[fp + slot], stack[--sp] != 0), method.slotNames[slot], "boolean");
+                    break;
+                }
+                case Opcode.STORE_WORD: {
+                    int slot = code[pc++];
+                    stored(memory.write(slots[fp + slot], words[--sp]), method.slotNames[slot], "word");
+                    words[sp] = null;
+                    break;
+                }
+
+                case Opcode.GLOAD_INT:
+                    stack[sp++] = memory.readInteger(globals[code[pc++]]);
+                    break;
+                case Opcode.GLOAD_DOUBLE:
+                    stack[sp++] = Double.doubleToRawLongBits(memory.readDouble(globals[code[pc++]]));
+                    break;
+                case Opcode.GLOAD_CHAR:
+                    stack[sp++] = memory.readChar(globals[code[pc++]]);
+                    break;
+                case Opcode.GLOAD_BOOLEAN:
+                    stack[sp++] = memory.readBoolean(globals[code[pc++]]) ? 1 : 0;
+                    break;
+                case Opcode.GLOAD_WORD:
+                    words[sp++] = (String) memory.read(globals[code[pc++]]);
+                    break;
+
+                case Opcode.GSTORE_INT: {
+                    int index = code[pc++];
+                    stored(memory.writeInteger(globals[index], (int) stack[--sp]), program.globalNames[index], "integer");
+                    break;
+                }
+                case Opcode.GSTORE_DOUBLE: {
+                    int index = code[pc++];
+                    stored(memory.writeDouble(globals[index], getDouble(--sp)), program.globalNames[index], "double");
+                    break;
+                }
+                case Opcode.GSTORE_CHAR: {
+                    int index = code[pc++];
+                    stored(memory.writeChar(globals[index], (char) stack[--sp]), program.globalNames[index], "char");
+                    break;
+                }
+                case Opcode.GSTORE_BOOLEAN: {
+                    int index = code[pc++];
+                    stored(memory.writeBoolean(globals[index], stack[--sp] != 0), program.globalNames[index], "boolean");
+                    break;
+                }
+                case Opcode.GSTORE_WORD: {
+                    int index = code[pc++];
+                    stored(memory.write(globals[index], words[--sp]), program.globalNames[index], "word");
+                    words[sp] = null;
+                    break;
+                }
+
+                case Opcode.I2D:
+                    stack[sp - 1] = Double.doubleToRawLongBits((int) stack[sp - 1]);
+                    break;
+                case Opcode.D2I: {
+                    double value = Double.longBitsToDouble(stack[sp - 1]);
+                    if (value % 1 != 0 || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+                        expected(value + "", "integer");
+                    stack[sp - 1] = (int) value;
+                    break;
+                }
+
+                case Opcode.IADD:
+                    sp--;
+                    stack[sp - 1] = (int) stack[sp - 1] + (int) stack[sp];
+                    break;
+                case Opcode.ISUB:
+                    sp--;
+                    stack[sp - 1] = (int) stack[sp - 1] - (int) stack[sp];
+                    break;
+                case Opcode.IMUL:
+                    sp--;
+                    stack[sp - 1] = (int) stack[sp - 1] * (int) stack[sp];
+                    break;
+                case Opcode.IDIV:
+                    sp--;
+                    if ((int) stack[sp] == 0)
+                        exception("Don't break math");
+                    stack[sp - 1] = (int) stack[sp - 1] / (int) stack[sp];
+                    break;
+                case Opcode.IREM:
+                    sp--;
+                    if ((int) stack[sp] == 0)
+                        exception("Don't break math");
+                    stack[sp - 1] = (int) stack[sp - 1] % (int) stack[sp];
+                    break;
+                case Opcode.INEG:
+                    stack[sp - 1] = -(int) stack[sp - 1];
+                    break;
+
+                case Opcode.DADD:
+                    sp--;
+                    stack[sp - 1] = Double.doubleToRawLongBits(getDouble(sp - 1) + getDouble(sp));
+                    break;
+                case Opcode.DSUB:
+                    sp--;
+                    stack[sp - 1] = Double.doubleToRawLongBits(getDouble(sp - 1) - getDouble(sp));
+                    break;
+                case Opcode.DMUL:
+                    sp--;
+                    stack[sp - 1] = Double.doubleToRawLongBits(getDouble(sp - 1) * getDouble(sp));
+                    break;
+                case Opcode.DDIV:
+                    sp--;
+                    if (getDouble(sp) == 0)
+                        exception("Don't break math");
+                    stack[sp - 1] = Double.doubleToRawLongBits(getDouble(sp - 1) / getDouble(sp));
+                    break;
+                case Opcode.DREM:
+                    sp--;
+                    stack[sp - 1] = Double.doubleToRawLongBits(getDouble(sp - 1) % getDouble(sp));
+                    break;
+                case Opcode.DNEG:
+                    stack[sp - 1] = Double.doubleToRawLongBits(-getDouble(sp - 1));
+                    break;
+
+                case Opcode.IEQ:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] == stack[sp] ? 1 : 0;
+                    break;
+                case Opcode.INE:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] != stack[sp] ? 1 : 0;
+                    break;
+                case Opcode.ILT:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] < stack[sp] ? 1 : 0;
+                    break;
+                case Opcode.IGT:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] > stack[sp] ? 1 : 0;
+                    break;
+                case Opcode.ILE:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] <= stack[sp] ? 1 : 0;
+                    break;
+                case Opcode.IGE:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] >= stack[sp] ? 1 : 0;
+                    break;
+
+                case Opcode.DEQ:
+                    sp--;
+                    stack[sp - 1] = getDouble(sp - 1) == getDouble(sp) ? 1 : 0;
+                    break;
+                case Opcode.DNE:
+                    sp--;
+                    stack[sp - 1] = getDouble(sp - 1) != getDouble(sp) ? 1 : 0;
+                    break;
+                case Opcode.DLT:
+                    sp--;
+                    stack[sp - 1] = getDouble(sp - 1) < getDouble(sp) ? 1 : 0;
+                    break;
+                case Opcode.DGT:
+                    sp--;
+                    stack[sp - 1] = getDouble(sp - 1) > getDouble(sp) ? 1 : 0;
+                    break;
+                case Opcode.DLE:
+                    sp--;
+                    stack[sp - 1] = getDouble(sp - 1) <= getDouble(sp) ? 1 : 0;
+                    break;
+                case Opcode.DGE:
+                    sp--;
+                    stack[sp - 1] = getDouble(sp - 1) >= getDouble(sp) ? 1 : 0;
+                    break;
+
+                case Opcode.WEQ:
+                    sp--;
+                    stack[sp - 1] = words[sp - 1].equals(words[sp]) ? 1 : 0;
+                    break;
+                case Opcode.WNE:
+                    sp--;
+                    stack[sp - 1] = words[sp - 1].equals(words[sp]) ? 0 : 1;
+                    break;
+
+                case Opcode.NOT:
+                    stack[sp - 1] = stack[sp - 1] ^ 1;
+                    break;
+
+                case Opcode.JUMP:
+                    pc = code[pc];
+                    break;
+                case Opcode.JUMP_IF_FALSE:
+                    pc = stack[--sp] == 0 ? code[pc] : pc + 1;
+                    break;
+                case Opcode.JUMP_IF_TRUE:
+                    pc = stack[--sp] != 0 ? code[pc] : pc + 1;
+                    break;
+
+                case Opcode.IF_IEQ:
+                    sp -= 2;
+                    pc = (int) stack[sp] == (int) stack[sp + 1] ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_INE:
+                    sp -= 2;
+                    pc = (int) stack[sp] != (int) stack[sp + 1] ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_ILT:
+                    sp -= 2;
+                    pc = (int) stack[sp] < (int) stack[sp + 1] ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_IGT:
+                    sp -= 2;
+                    pc = (int) stack[sp] > (int) stack[sp + 1] ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_ILE:
+                    sp -= 2;
+                    pc = (int) stack[sp] <= (int) stack[sp + 1] ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_IGE:
+                    sp -= 2;
+                    pc = (int) stack[sp] >= (int) stack[sp + 1] ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_DEQ:
+                    sp -= 2;
+                    pc = getDouble(sp) == getDouble(sp + 1) ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_DNE:
+                    sp -= 2;
+                    pc = getDouble(sp) != getDouble(sp + 1) ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_DLT:
+                    sp -= 2;
+                    pc = getDouble(sp) < getDouble(sp + 1) ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_DGT:
+                    sp -= 2;
+                    pc = getDouble(sp) > getDouble(sp + 1) ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_DLE:
+                    sp -= 2;
+                    pc = getDouble(sp) <= getDouble(sp + 1) ? code[pc] : pc + 1;
+                    break;
+                case Opcode.IF_DGE:
+                    sp -= 2;
+                    pc = getDouble(sp) >= getDouble(sp + 1) ? code[pc] : pc + 1;
+                    break;
+
+                case Opcode.CALL:
+                    call(program.methods[code[pc++]]);
+                    break;
+                case Opcode.TAIL_CALL:
+                    tailCall(program.methods[code[pc++]]);
+                    break;
+                case Opcode.RETURN:
+                case Opcode.RETURN_VALUE:
+                    if (!giveBack())
+                        return true;
+                    break;
+                case Opcode.NO_RETURN:
+                    exception("no return statement");
+                    break;
+                case Opcode.FAIL:
+                    exception((String) program.constants[code[pc++]]);
+                    break;
+
+                case Opcode.OUTPUT_INT:
+                    output.append((int) stack[--sp]);
+                    written();
+                    break;
+                case Opcode.OUTPUT_DOUBLE:
+                    output.append(getDouble(--sp));
+                    written();
+                    break;
+                case Opcode.OUTPUT_CHAR:
+                    output.append((char) stack[--sp]);
+                    written();
+                    break;
+                case Opcode.OUTPUT_BOOLEAN:
+                    output.append(stack[--sp] != 0);
+                    written();
+                    break;
+                case Opcode.OUTPUT_WORD:
+                    output.append(words[--sp]);
+                    written();
+                    break;
+                case Opcode.NEWLINE:
+                    output.append(NEWLINE);
+                    written();
+                    break;
+                case Opcode.POP:
+                    sp--;
+                    break;
+
+                case Opcode.SAFEPOINT:
+                    if (steps >= check){
+                        stepsLeft -= steps;
+                        steps = 0;
+                        if (!safepoint())
+                            return false;
+                        check = untilCheck();
+                    }
+                    break;
+
+                default:
+                    exception("unknown instruction " + code[opPc]);
+            }
+        }
+    }
+
+    private double getDouble(int index){
+        return Double.longBitsToDouble(stack[index]);
+    }
+
+    /*
+     * commands
+     */
+
+    /**
+     * pushes a frame for method, moving the arguments off the stack into its parameters
+     */
+    private void call(Bytecode.Method method){
+        pushFrame(method, pc);
+        enter(method);
+    }
+
+    /**
+     * like call, but the frame of the running command is popped first, so the callee gives back
+     * straight to its caller and a command calling itself last runs in the same memory however often it does
+     */
+    private void tailCall(Bytecode.Method method){
+        int returnPc = returnAddresses[--depth];
+        memory.release(marks[depth]);
+        frameTop = fp;
+        fp = callerFps[depth];
+
+        pushFrame(method, returnPc);
+        enter(method);
+    }
+
+    /**
+     * moves the arguments off the stack into the parameters of method, which has just had its frame pushed, and starts it
+     */
+    private void enter(Bytecode.Method method){
+        for (int i = method.paramCount - 1; i >= 0; i--)
+            write(slots[fp + i], method.slotTypes[i], method.slotNames[i]);
+
+        ensureCapacity(method);
+        pc = method.entry;
+    }
+
+    /**
+     * grows the stack so method has room to run
+     */
+    private void ensureCapacity(Bytecode.Method method){
+        if (sp + method.maxStack >= stack.length){
+            stack = Arrays.copyOf(stack, (sp + method.maxStack) * 2);
+            words = Arrays.copyOf(words, stack.length);
+        }
+    }
+
+    /**
+     * makes method the running command, with a new frame of variables after the current one
+     */
+    private void pushFrame(Bytecode.Method method, int returnPc){
+        if (depth == MAX_DEPTH)
+            exception("more than " + MAX_DEPTH + " commands deep");
+        if (depth == methods.length){
+            methods = Arrays.copyOf(methods, depth * 2);
+            marks = Arrays.copyOf(marks, depth * 2);
+            returnAddresses = Arrays.copyOf(returnAddresses, depth * 2);
+            callerFps = Arrays.copyOf(callerFps, depth * 2);
+        }
+
+        methods[depth] = method;
+        marks[depth] = memory.mark();
+        returnAddresses[depth] = returnPc;
+        callerFps[depth++] = fp;
+
+        fp = frameTop;
+        frameTop += method.slotTypes.length;
+        if (frameTop > slots.length)
+            slots = Arrays.copyOf(slots, frameTop * 2);
+
+        for (int i = 0; i < method.slotTypes.length; i++)
+            slots[fp + i] = allocate(method.slotTypes[i]);
+
+        this.method = method;
+    }
+
+    /**
+     * pops the frame, leaving anything given on the stack
+     * @return whether there is a caller to go back to
+     */
+    private boolean giveBack(){
+        pc = returnAddresses[--depth];
+        memory.release(marks[depth]);
+        frameTop = fp;
+        fp = callerFps[depth];
+
+        if (depth == 0)
+            return false;
+
+        method = methods[depth - 1];
+        return true;
+    }
+
+    /*
+     * the RAM
+     */
+
+    private int allocate(String type){
+        int handle = memory.allocate(type);
+        if (handle == -1)
+            exception("out of memory");
+        return handle;
+    }
+
+    /**
+     * pops the top of the stack into the variable at handle. only the parameters of a call go through here,
+     * every other store has its type in its instruction
+     */
+    private void write(int handle, String type, String name){
+        sp--;
+
+        switch (type){
+            case "integer":
+                stored(memory.writeInteger(handle, (int) stack[sp]), name, type);
+                break;
+            case "double":
+                stored(memory.writeDouble(handle, getDouble(sp)), name, type);
+                break;
+            case "char":
+                stored(memory.writeChar(handle, (char) stack[sp]), name, type);
+                break;
+            case "boolean":
+                stored(memory.writeBoolean(handle, stack[sp] != 0), name, type);
+                break;
+            default:
+                stored(memory.write(handle, words[sp]), name, type);
+                words[sp] = null;
+        }
+    }
+
+    /**
+     * @param caseNum what the RAM said to a write of the variable name
+     */
+    private void stored(int caseNum, String name, String type){
+        if (caseNum == -1)
+            exception("out of memory");
+        else if (caseNum == -2)
+            exception("incorrect input data for " + name + " for type " + type);
+    }
+}
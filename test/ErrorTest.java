@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * the errors a program can run into, which every mode must fail with the same way, and a cache file
+ * that has been tampered with, which must never be run
+ */
+public class ErrorTest
+{
+    private static final String[] MODES = {"run", "interpret", "closures", "tiered"};
+
+    private static final String DIVIDE = "program [\n"
+            + "    command start()[\n"
+            + "        integer zero = 0\n"
+            + "        outputNL 1\n"
+            + "        outputNL 1 / zero\n"
+            + "    ]\n"
+            + "]\n";
+
+    private static final String DIVIDE_DOUBLE = "program [\n"
+            + "    command start()[\n"
+            + "        double zero = 0.0\n"
+            + "        outputNL 1.5 / zero\n"
+            + "    ]\n"
+            + "]\n";
+
+    private static final String MEMORY = "program [\n"
+            + "    command start()[\n"
+            + "        outputNL 1\n"
+            + "        word w = \"more than a few bits can hold\"\n"
+            + "    ]\n"
+            + "]\n";
+
+    private static final String FOREVER = "program [\n"
+            + "    command start()[\n"
+            + "        integer i = 0\n"
+            + "        while (true)[\n"
+            + "            i = 1 - i\n"
+            + "        ]\n"
+            + "    ]\n"
+            + "]\n";
+
+    static void run() throws IOException, InterruptedException {
+        for (String mode: MODES){
+            Tests.same("1\n\n\nError at line 5:Don't break math.", run(mode, DIVIDE, new Engine(), new RAM()), "1 / 0 --" + mode);
+            Tests.same("\n\nError at line 4:Don't break math.", run(mode, DIVIDE_DOUBLE, new Engine(), new RAM()), "1.5 / 0.0 --" + mode);
+            Tests.same("1\n\n\nError at line 4:out of memory.", run(mode, MEMORY, new Engine(), new RAM(64)), "out of memory --" + mode);
+
+            Engine steps = new Engine(RAM.DEFAULT_LIMIT, null, new RunLimits(10000, 0));
+            Tests.check(run(mode, FOREVER, steps, new RAM()).endsWith(":out of steps."), "out of steps --" + mode);
+
+            Engine time = new Engine(RAM.DEFAULT_LIMIT, null, new RunLimits(0, 100));
+            Tests.check(run(mode, FOREVER, time, new RAM()).endsWith(":out of time."), "out of time --" + mode);
+        }
+
+        Tests.same("1\n\n\nError at line 5:Don't break math.", ModeTest.runJar(Source.text("divide", DIVIDE)), "1 / 0 --jar");
+        Tests.same("\n\nError at line 4:Don't break math.", ModeTest.runJar(Source.text("divideDouble", DIVIDE_DOUBLE)), "1.5 / 0.0 --jar");
+
+        tamperedFile();
+        tamperedProgram();
+    }
+
+    private static String run(String mode, String code, Engine engine, RAM memory){
+        return ModeTest.run(mode, Source.text("test", code), engine, memory);
+    }
+
+    /**
+     * a cache file changed on disk is compiled again, and the file put right
+     */
+    private static void tamperedFile() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+
+        try {
+            String expected = new Engine().compile("divide", DIVIDE.replace("1 / zero", "2 * 3")).run();
+            Tests.same("1\n6\n", expected, "the program to cache");
+
+            new Engine(RAM.DEFAULT_LIMIT, directory).compile("divide", DIVIDE.replace("1 / zero", "2 * 3"));
+            Path file = only(directory);
+            byte[] saved = Files.readAllBytes(file), tampered = saved.clone();
+            tampered[tampered.length - 1] ^= 1;
+            Files.write(file, tampered);
+
+            String output = new Engine(RAM.DEFAULT_LIMIT, directory).compile("divide", DIVIDE.replace("1 / zero", "2 * 3")).run();
+            Tests.same(expected, output, "a tampered cache file");
+            Tests.check(Arrays.equals(saved, Files.readAllBytes(only(directory))), "a tampered cache file is written again");
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+                for (Path file: files)
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * a program written by the cache itself, so it hashes right, but with code the VirtualMachine could not run
+     */
+    private static void tamperedProgram() throws IOException {
+        Path directory = Files.createTempDirectory("cache");
+        BytecodeCache cache = new BytecodeCache(directory);
+        byte[] hash = new byte[32];
+
+        try {
+            Bytecode program = new BytecodeCompiler().compile(Engine.parse(Source.text("divide", DIVIDE)));
+            Tests.check(cache.save(hash, program) && cache.load(hash) != null, "a cached program loads");
+
+            program.code[program.entry().entry] = Integer.MAX_VALUE;
+            Tests.check(cache.save(hash, program) && cache.load(hash) == null, "a cached program with a bad opcode does not load");
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+                for (Path file: files)
+                    Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static Path only(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.jcbc")){
+            Path found = null;
+            for (Path file: files){
+                Tests.check(found == null, "one file in the cache");
+                found = file;
+            }
+            return found;
+        }
+    }
+}
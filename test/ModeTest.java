@@ -0,0 +1,75 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * every way of running a program must output the same as the VirtualMachine, errors included,
+ * for each of the sample programs
+ */
+public class ModeTest
+{
+    /**the modes run in this JVM, checked against "run"*/
+    private static final String[] MODES = {"interpret", "closures", "tiered"};
+
+    static void run() throws IOException, InterruptedException {
+        try (DirectoryStream<Path> samples = Files.newDirectoryStream(Paths.get("."), "*.txt")){
+            for (Path sample: samples){
+                String expected = run("run", Engine.open(sample), new Engine(), new RAM());
+                Tests.check(!expected.isEmpty(), sample + " outputs something");
+
+                for (String mode: MODES)
+                    Tests.same(expected, run(mode, Engine.open(sample), new Engine(), new RAM()), sample + " --" + mode);
+
+                Tests.same(expected, runJar(Engine.open(sample)), sample + " --jar");
+            }
+        }
+    }
+
+    /**
+     * runs source as the Driver would, in mode
+     * @return what it printed, with its error after two new lines as the Driver prints it
+     */
+    static String run(String mode, Source source, Engine engine, RAM memory){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+
+        try {
+            new Compiler(mode, engine, memory, null).run(source, null);
+        } catch (ProgramException e){
+            System.out.print("\n\n" + e.getMessage());
+        } finally {
+            System.out.flush();
+            System.setOut(out);
+        }
+
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * compiles source to a jar and runs it in a JVM of its own, as a jar ends the JVM on an error
+     * @return what it printed
+     */
+    static String runJar(Source source) throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("jar");
+        Path jar = directory.resolve("program.jar");
+
+        try {
+            new Compiler("jar", new Engine(), new RAM(), null).run(source, jar.toString());
+
+            Process process = new ProcessBuilder(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-jar", jar.toString()).redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+            process.waitFor();
+            return output;
+        } finally {
+            Files.deleteIfExists(jar);
+            Files.deleteIfExists(directory);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * the allocator: freed bits are merged with the free bits beside them and used again, and a RAM that is full
+ * but has gaps slides its variables together before it gives up
+ */
+public class RAMTest
+{
+    static void run(){
+        coalescing();
+        givenBackToTheEnd();
+        mergingFreeBlocks();
+        compacting();
+        fullAfterCompacting();
+    }
+
+    /**
+     * two freed words side by side hold a word as long as both, without the RAM growing
+     */
+    private static void coalescing(){
+        RAM memory = new RAM(1 << 16);
+        memory.allocateMemory("a", "word", "abcde");
+        memory.allocateMemory("b", "word", "fghij");
+        memory.allocateMemory("pin", "integer", "1");
+        int used = used(memory);
+
+        memory.deleteValue("a");
+        memory.deleteValue("b");
+        Tests.same(0, memory.allocateMemory("c", "word", "klmnopqrst"), "a word in two freed words");
+        Tests.same(used, used(memory), "the bits used after filling two freed words");
+        Tests.same("klmnopqrst", memory.getValue("c"), "the word in two freed words");
+        Tests.same(1, memory.getValue("pin"), "the variable after two freed words");
+    }
+
+    /**
+     * freed bits at the end of the RAM, merged or not, are given back to the end. all that is left is the 16 bits
+     * a word takes while it holds nothing, which are kept on a free list
+     */
+    private static void givenBackToTheEnd(){
+        RAM memory = new RAM(1 << 16);
+        memory.allocateMemory("a", "word", "abcde");
+        memory.allocateMemory("b", "word", "fghij");
+
+        memory.deleteValue("a");
+        memory.deleteValue("b");
+        Tests.same(16, used(memory), "the bits used once every word is freed");
+    }
+
+    /**
+     * with the RAM full, two freed integers side by side are merged to hold a double
+     */
+    private static void mergingFreeBlocks(){
+        RAM memory = new RAM(128);
+        int[] integers = integers(memory, 4);
+
+        memory.free(integers[1]);
+        memory.free(integers[2]);
+        int number = memory.allocate("double");
+        Tests.check(number >= 0, "a double in two freed integers");
+        Tests.same(0, memory.writeDouble(number, 2.5), "writing the double in two freed integers");
+        Tests.same(2.5, memory.readDouble(number), "the double in two freed integers");
+        Tests.same(0, memory.readInteger(integers[0]), "the integer before two freed integers");
+        Tests.same(3, memory.readInteger(integers[3]), "the integer after two freed integers");
+    }
+
+    /**
+     * with the RAM full, two freed integers apart from each other only hold a double once the integers
+     * between them are moved
+     */
+    private static void compacting(){
+        RAM memory = new RAM(128);
+        int[] integers = integers(memory, 4);
+
+        memory.free(integers[0]);
+        memory.free(integers[2]);
+        int number = memory.allocate("double");
+        Tests.check(number >= 0, "a double in the gaps of a full RAM");
+        Tests.same(0, memory.writeDouble(number, 2.5), "writing the double in the gaps of a full RAM");
+        Tests.same(2.5, memory.readDouble(number), "the double in the gaps of a full RAM");
+        Tests.same(1, memory.readInteger(integers[1]), "an integer moved by compacting");
+        Tests.same(3, memory.readInteger(integers[3]), "the last integer moved by compacting");
+        Tests.same(128, used(memory), "the bits used after compacting");
+    }
+
+    /**
+     * a variable bigger than all the gaps together still fails, leaving the others as they were
+     */
+    private static void fullAfterCompacting(){
+        RAM memory = new RAM(128);
+        int[] integers = integers(memory, 4);
+
+        memory.free(integers[0]);
+        Tests.same(-1, memory.allocate("double"), "a double bigger than the free bits");
+        for (int i = 1; i < 4; i++)
+            Tests.same(i, memory.readInteger(integers[i]), "integer " + i + " after failing to find room");
+        Tests.check(memory.allocate("integer") >= 0, "an integer in the free bits after failing to find room");
+    }
+
+    /**
+     * fills the RAM with count integers, each holding its index
+     */
+    private static int[] integers(RAM memory, int count){
+        int[] handles = new int[count];
+        for (int i = 0; i < count; i++){
+            handles[i] = memory.allocate("integer");
+            memory.writeInteger(handles[i], i);
+        }
+        return handles;
+    }
+
+    /**
+     * @return how many bits the RAM is using, from the start of its stats
+     */
+    private static int used(RAM memory){
+        return Integer.parseInt(memory.stats().substring(0, memory.stats().indexOf(' ')));
+    }
+}
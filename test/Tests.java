@@ -0,0 +1,32 @@
+import java.util.ArrayList;
+
+/**
+ * runs every test, listing each check that fails, and exits with 1 if any did. from the top of the repository:
+ * javac -d out *.java test/*.java && java -cp out Tests
+ */
+public class Tests
+{
+    private static int checks = 0;
+    private static final ArrayList<String> failures = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        ModeTest.run();
+        ErrorTest.run();
+        RAMTest.run();
+
+        for (String failure: failures)
+            System.out.println("FAILED " + failure);
+        System.out.println((checks - failures.size()) + " of " + checks + " checks passed");
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    static void check(boolean passed, String what){
+        checks++;
+        if (!passed)
+            failures.add(what);
+    }
+
+    static void same(Object expected, Object actual, String what){
+        check(expected.equals(actual), what + ": expected \"" + expected + "\" but got \"" + actual + "\"");
+    }
+}